@@ -0,0 +1,89 @@
+package net.xfolch.dtech.vendingmachine.benchmarks;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.calculators.CoinCalculatorFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the calculations over coins for every calculator and different cash sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoinCalculatorBenchmark {
+
+    @Param({"highest", "lowest", "denomination", "exact", "lookupTable"})
+    public String calculator;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int cashSize;
+
+    /**
+     * Change to give back, in cents
+     */
+    @Param({"185"})
+    public long remaining;
+
+    private CoinCalculator coinCalculator;
+    private List<Coin> cash;
+    private List<Coin> credit;
+
+    @Setup
+    public void setUp() {
+        coinCalculator = calculator(calculator);
+        cash = randomCoins(cashSize, new Random(42));
+        credit = randomCoins(5, new Random(7));
+    }
+
+    @Benchmark
+    public long sum() {
+        return coinCalculator.sum(cash);
+    }
+
+    @Benchmark
+    public long remaining() {
+        return coinCalculator.remaining(credit, 150);
+    }
+
+    @Benchmark
+    public List<Coin> change() {
+        return coinCalculator.change(cash, remaining);
+    }
+
+    static CoinCalculator calculator(String name) {
+        switch (name) {
+            case "highest":
+                return CoinCalculatorFactory.highestValuedCoinCalculator();
+            case "lowest":
+                return CoinCalculatorFactory.lowestValuedCoinCalculator();
+            case "denomination":
+                return CoinCalculatorFactory.denominationCoinCalculator();
+            case "exact":
+                return CoinCalculatorFactory.exactChangeCoinCalculator();
+            case "lookupTable":
+                return CoinCalculatorFactory.lookupTableCoinCalculator();
+            default:
+                throw new IllegalArgumentException("Unknown calculator " + name);
+        }
+    }
+
+    static List<Coin> randomCoins(int size, Random random) {
+        Coin[] coins = Coin.values();
+        List<Coin> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(coins[random.nextInt(coins.length)]);
+        }
+
+        return result;
+    }
+
+}
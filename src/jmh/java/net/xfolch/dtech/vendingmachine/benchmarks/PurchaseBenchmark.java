@@ -0,0 +1,106 @@
+package net.xfolch.dtech.vendingmachine.benchmarks;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the whole consumer flow as well as the supplier reset for every kind of supplier,
+ * over vending machines with different cash and catalog sizes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurchaseBenchmark {
+
+    private static final int UNITS = 1_000_000_000;
+
+    @Param({"nice", "exact", "concurrent"})
+    public String supplier;
+
+    @Param({"100", "10000"})
+    public int cashSize;
+
+    @Param({"10", "500"})
+    public int catalogSize;
+
+    private Supplier vendingMachineSupplier;
+    private VendingMachine vendingMachine;
+    private Integer productId;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        vendingMachineSupplier = supplier(supplier);
+
+        VendingMachine.Builder builder = vendingMachineSupplier.newVendingMachine()
+                .setCash(CoinCalculatorBenchmark.randomCoins(cashSize, new Random(42)));
+        for (int id = 0; id < catalogSize; id++) {
+            builder = builder.addProduct(Product.builder()
+                    .setId(id)
+                    .setName("Product " + id)
+                    .setPriceInCents(150)
+                    .build(), UNITS);
+        }
+
+        vendingMachine = builder.build();
+        productId = catalogSize / 2;
+    }
+
+    /**
+     * Pays the exact price, so the cash never runs out of change
+     */
+    @Benchmark
+    public Try<Purchase> insertAndSelect() {
+        return vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .insertCoin(Coin.FIFTY_CENTS)
+                .selectProduct(productId);
+    }
+
+    @Benchmark
+    public List<Coin> insertAndCancel() {
+        return vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .insertCoin(Coin.FIFTY_CENTS)
+                .cancel();
+    }
+
+    /**
+     * Selecting a product that does not exist fails, so the credit is cancelled afterwards
+     */
+    @Benchmark
+    public List<Coin> insertSelectMissingAndCancel() {
+        vendingMachine
+                .insertCoin(Coin.TWO_EUROS)
+                .selectProduct(-1);
+
+        return vendingMachine.cancel();
+    }
+
+    @Benchmark
+    public VendingMachine reset() {
+        vendingMachineSupplier.reset(vendingMachine);
+        return vendingMachine;
+    }
+
+    static Supplier supplier(String name) {
+        switch (name) {
+            case "nice":
+                return SupplierFactory.niceSupplier();
+            case "exact":
+                return SupplierFactory.exactChangeSupplier();
+            case "concurrent":
+                return SupplierFactory.concurrentSupplier();
+            default:
+                throw new IllegalArgumentException("Unknown supplier " + name);
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade of a vending machine, whose operations are queued and made one after
+ * another, in the order they were requested, while the caller goes on.
+ * <p>
+ * Futures are completed by the thread that serves the vending machine, so callers should not block
+ * in the stages that depend on them. Any unexpected error of an operation ends up as a failure of
+ * its try, as the domain failures do.
+ */
+public interface AsyncVendingMachine {
+
+    /**
+     * @see VendingMachine#insertCoin(Coin)
+     * @return a future of the inserted coin, once it is part of the credit
+     */
+    CompletableFuture<Try<Coin>> insertCoin(Coin coin);
+
+    /**
+     * @see VendingMachine#selectProduct(Integer)
+     */
+    CompletableFuture<Try<Purchase>> selectProduct(Integer productId);
+
+    /**
+     * @see VendingMachine#cancel()
+     */
+    CompletableFuture<Try<List<Coin>>> cancel();
+
+}
@@ -2,26 +2,38 @@ package net.xfolch.dtech.vendingmachine.domain.model;
 
 import java.math.BigDecimal;
 
-import static java.math.BigDecimal.ROUND_FLOOR;
-
 /**
  * Represents a coin in our domain model
  * <p>
+ * Coins are declared from the lowest to the highest value, and their value is held in cents
+ * so that calculations do not need arbitrary-precision arithmetic
+ * <p>
  * Created by xfolch on 7/8/16.
  */
 public enum Coin {
 
-    FIVE_CENTS(new BigDecimal(0.05).setScale(2, ROUND_FLOOR)),
-    TEN_CENTS(new BigDecimal(0.10).setScale(2, ROUND_FLOOR)),
-    TWENTY_CENTS(new BigDecimal(0.20).setScale(2, ROUND_FLOOR)),
-    FIFTY_CENTS(new BigDecimal(0.50).setScale(2, ROUND_FLOOR)),
-    ONE_EURO(new BigDecimal(1.00).setScale(2, ROUND_FLOOR)),
-    TWO_EUROS(new BigDecimal(2.00).setScale(2, ROUND_FLOOR));
+    FIVE_CENTS(5),
+    TEN_CENTS(10),
+    TWENTY_CENTS(20),
+    FIFTY_CENTS(50),
+    ONE_EURO(100),
+    TWO_EUROS(200);
+
+    private static final long UNIT_IN_CENTS = unit();
 
+    private final int cents;
     private final BigDecimal value;
 
-    Coin(BigDecimal value) {
-        this.value = value;
+    Coin(int cents) {
+        this.cents = cents;
+        this.value = Money.amount(cents);
+    }
+
+    /**
+     * @return the value of this coin in cents
+     */
+    public int cents() {
+        return cents;
     }
 
     public BigDecimal value() {
@@ -33,4 +45,25 @@ public enum Coin {
         return value.toString();
     }
 
+    /**
+     * @return the greatest common divisor of all the coins in cents, no amount that is not a multiple
+     * of it can be paid
+     */
+    public static long unitInCents() {
+        return UNIT_IN_CENTS;
+    }
+
+    private static long unit() {
+        long unit = 0;
+        for (Coin coin : values()) {
+            unit = gcd(unit, coin.cents);
+        }
+
+        return unit;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
 }
@@ -1,12 +1,14 @@
 package net.xfolch.dtech.vendingmachine.domain.model;
 
-import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Responsible for doing some calculations over coins
  * <p>
+ * All the amounts are in cents, see {@link Money}
+ * <p>
  * Created by xfolch on 7/8/16.
  */
 public interface CoinCalculator {
@@ -14,16 +16,50 @@ public interface CoinCalculator {
     /**
      * Calculates the total amount of the given coins
      */
-    BigDecimal sum(Collection<Coin> coins);
+    long sum(Collection<Coin> coins);
 
     /**
      * Calculates the remaining amount by subtract the price amount from the credit
      */
-    BigDecimal remaining(List<Coin> credit, BigDecimal price);
+    long remaining(List<Coin> credit, long price);
 
     /**
      * Calculates how many coins are needed to get the given remaining from a given cash
      */
-    List<Coin> change(List<Coin> cash, BigDecimal remaining);
+    List<Coin> change(List<Coin> cash, long remaining);
+
+    /**
+     * Calculates the change like {@link #change(List, long)} but says explicitly when it cannot
+     * be given back.
+     * <p>
+     * By default, calculators give back as much as they can from the given cash, so there is always some change
+     *
+     * @return the coins to give back, or empty if the calculator refuses to give back such remaining
+     */
+    default Optional<List<Coin>> changeIfPossible(List<Coin> cash, long remaining) {
+        return Optional.of(change(cash, remaining));
+    }
+
+    /**
+     * Tells whether this calculator refuses to give back less than the remaining, so that a sale
+     * whose change cannot be paid exactly may be rejected without calculating anything
+     *
+     * @return whether {@link #changeIfPossible(List, long)} is empty when the change cannot be paid exactly
+     */
+    default boolean isExact() {
+        return false;
+    }
+
+    /**
+     * Calculates the change like {@link #changeIfPossible(List, long)} but from the number of coins
+     * per denomination, so that the cash does not need to be expanded into a list.
+     * <p>
+     * By default, the counts are expanded so that calculators that work on lists keep working
+     *
+     * @return the coins to give back, or empty if the calculator refuses to give back such remaining
+     */
+    default Optional<List<Coin>> changeIfPossible(CoinCounts cash, long remaining) {
+        return changeIfPossible(cash.toList(), remaining);
+    }
 
 }
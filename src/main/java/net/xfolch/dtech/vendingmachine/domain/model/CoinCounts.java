@@ -0,0 +1,39 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only view of how many coins of every denomination there are, so that a cash can be handed
+ * over to a {@link CoinCalculator} without expanding it into a list of coins
+ */
+@FunctionalInterface
+public interface CoinCounts {
+
+    /**
+     * @return how many coins of the given denomination there are
+     */
+    long count(Coin coin);
+
+    /**
+     * @return a view of the given counts, indexed by {@link Coin#ordinal()}, which are not copied
+     */
+    static CoinCounts of(long[] countsByOrdinal) {
+        return coin -> countsByOrdinal[coin.ordinal()];
+    }
+
+    /**
+     * Expands these counts into a list of coins, from the lowest to the highest value
+     */
+    default List<Coin> toList() {
+        List<Coin> coins = new ArrayList<>();
+        for (Coin coin : Coin.values()) {
+            for (long n = count(coin); n > 0; n--) {
+                coins.add(coin);
+            }
+        }
+
+        return coins;
+    }
+
+}
@@ -0,0 +1,42 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Keeps one instance of a domain failure per product id, which is safe because such failures
+ * are immutable: they neither record their stack trace nor accept suppressed exceptions.
+ * <p>
+ * Only small ids are cached, so that probing arbitrary ids cannot make the cache grow unbounded
+ */
+final class FailureCache<E extends RuntimeException> {
+
+    private static final int SIZE = 1024;
+
+    private final AtomicReferenceArray<E> failures;
+    private final Function<Integer, E> factory;
+
+    private FailureCache(Function<Integer, E> factory) {
+        this.failures = new AtomicReferenceArray<>(SIZE);
+        this.factory = factory;
+    }
+
+    static <E extends RuntimeException> FailureCache<E> of(Function<Integer, E> factory) {
+        return new FailureCache<>(factory);
+    }
+
+    E get(Integer productId) {
+        if (productId == null || productId < 0 || productId >= SIZE) {
+            return factory.apply(productId);
+        }
+
+        E failure = failures.get(productId);
+        if (failure == null) {
+            failure = factory.apply(productId);
+            failures.lazySet(productId, failure);
+        }
+
+        return failure;
+    }
+
+}
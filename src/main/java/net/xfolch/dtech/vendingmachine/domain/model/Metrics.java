@@ -0,0 +1,61 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+/**
+ * Latencies and outcomes of the operations of the vending machines of an instrumented supplier.
+ * <p>
+ * Recording is lock-free, so the same metrics may be shared by many vending machines used from
+ * many threads. When metrics are disabled, suppliers do not instrument their vending machines at all.
+ */
+public interface Metrics {
+
+    /**
+     * Operations whose latency is recorded
+     */
+    enum Operation {
+        INSERT_COIN, SELECT_PRODUCT, PURCHASE, CANCEL, CHANGE
+    }
+
+    /**
+     * Outcomes of a product selection
+     */
+    enum Outcome {
+        SOLD, PRODUCT_NOT_EXISTS, PRODUCT_NOT_AVAILABLE, NOT_ENOUGH_CREDIT, NOT_ENOUGH_CHANGE
+    }
+
+    boolean isEnabled();
+
+    /**
+     * @return a copy of what has been recorded so far
+     */
+    Snapshot snapshot();
+
+    /**
+     * Immutable copy of the metrics at some point
+     */
+    interface Snapshot {
+
+        /**
+         * @return how many times the given operation was made
+         */
+        long count(Operation operation);
+
+        /**
+         * @param percentile between 0 and 100
+         * @return the latency in nanoseconds under which the given percentile of the operations took,
+         * or zero if the operation was never made
+         */
+        long latency(Operation operation, double percentile);
+
+        /**
+         * @return how many product selections had the given outcome
+         */
+        long count(Outcome outcome);
+
+        /**
+         * @return how many times the change could not be given back in full
+         */
+        long shortChanges();
+
+    }
+
+}
@@ -0,0 +1,34 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts are held in cents within a {@code long} all over the domain model, so that
+ * checking the credit or calculating the change neither allocates nor needs arbitrary-precision
+ * arithmetic.
+ * <p>
+ * This class is the adapter between such cents and the {@link BigDecimal} amounts used at the api edge
+ */
+public final class Money {
+
+    private static final int SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * @return the given amount in cents, rounding down any fraction of a cent
+     */
+    public static long cents(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.FLOOR).unscaledValue().longValue();
+    }
+
+    /**
+     * @return the amount of the given cents, with two decimals
+     */
+    public static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+}
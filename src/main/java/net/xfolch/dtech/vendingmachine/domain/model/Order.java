@@ -0,0 +1,106 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Represents a whole order of a consumer: the coins they pay with and the products they want,
+ * so that it can be purchased in one go.
+ * <p>
+ * A product wanted several times appears as many times as units are wanted.
+ */
+public final class Order {
+
+    private final List<Coin> coins;
+    private final List<Integer> productIds;
+
+    private Order(List<Coin> coins, List<Integer> productIds) {
+        this.coins = coins;
+        this.productIds = productIds;
+    }
+
+    public List<Coin> getCoins() {
+        return coins;
+    }
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+
+    /**
+     * @return a mutable builder to make an Order instance
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Mutable builder
+     */
+    public static final class Builder {
+        private final List<Coin> coins = new ArrayList<>();
+        private final List<Integer> productIds = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder addCoin(Coin coin) {
+            if (coin != null) {
+                coins.add(coin);
+            }
+
+            return this;
+        }
+
+        public Builder addCoins(List<Coin> coins) {
+            if (coins != null) {
+                coins.forEach(this::addCoin);
+            }
+
+            return this;
+        }
+
+        public Builder addProduct(Integer productId) {
+            return addProduct(productId, 1);
+        }
+
+        public Builder addProduct(Integer productId, int quantity) {
+            for (int i = 0; i < quantity; i++) {
+                productIds.add(productId);
+            }
+
+            return this;
+        }
+
+        public Order build() {
+            return new Order(Collections.unmodifiableList(new ArrayList<>(coins)),
+                    Collections.unmodifiableList(new ArrayList<>(productIds)));
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Order order = (Order) o;
+        return Objects.equals(coins, order.coins) &&
+                Objects.equals(productIds, order.productIds);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(coins, productIds);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("Order(Coins({0}), Products({1}))",
+                coins.stream().map(Objects::toString).collect(joining(", ")),
+                productIds.stream().map(Objects::toString).collect(joining(", ")));
+    }
+}
@@ -0,0 +1,44 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Products and units of many vending machines, loaded in bulk from a planogram file.
+ * <p>
+ * A planogram is a CSV file whose lines are {@code machine,product id,product name,price,units},
+ * where the price is in euros, such as {@code 1.50}. Fields are not quoted, and empty lines and lines
+ * starting with {@code #} are skipped. The first line of a product id defines the product, and every
+ * other line of such id must agree with its name and price.
+ */
+public interface Planogram {
+
+    /**
+     * @return the names of the vending machines, in the order they first appear in the file
+     */
+    Set<String> machines();
+
+    /**
+     * @return the products of all the vending machines, with no repeated ones
+     */
+    Collection<Product> products();
+
+    /**
+     * @return the vending machines of the planogram, without cash, by their names
+     * @see #build(Supplier, List)
+     */
+    Map<String, VendingMachine> build(Supplier supplier);
+
+    /**
+     * Builds every vending machine of the planogram through the given supplier, as many at once as
+     * there are processors, so that supplier must be able to build from many threads. Every vending
+     * machine is built with its name, by which suppliers that persist them find them again.
+     *
+     * @param cash that every vending machine starts with
+     * @return the vending machines of the planogram by their names, in the order they first appear
+     */
+    Map<String, VendingMachine> build(Supplier supplier, List<Coin> cash);
+
+}
@@ -4,8 +4,6 @@ import java.math.BigDecimal;
 import java.text.MessageFormat;
 import java.util.Objects;
 
-import static java.math.BigDecimal.ROUND_FLOOR;
-
 /**
  * Immutable class that represents a product that a vending machine holds
  * <p>
@@ -17,15 +15,19 @@ public final class Product {
 
     private final Integer id;
     private final String name;
+    private final long priceInCents;
     private final BigDecimal price;
+    private final int hash;
 
     /**
      * Owns the construction of its instances by means of the builder
      */
-    private Product(Integer id, String name, BigDecimal price) {
+    private Product(Integer id, String name, long priceInCents) {
         this.id = id;
         this.name = name;
-        this.price = price.setScale(2, ROUND_FLOOR);
+        this.priceInCents = priceInCents;
+        this.price = Money.amount(priceInCents);
+        this.hash = Objects.hashCode(id);
     }
 
     public Integer getId() {
@@ -40,6 +42,13 @@ public final class Product {
         return price;
     }
 
+    /**
+     * @return the price in cents, which is what the vending machine works with
+     */
+    public long getPriceInCents() {
+        return priceInCents;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -50,7 +59,7 @@ public final class Product {
     public static final class Builder {
         private Integer id;
         private String name;
-        private BigDecimal price;
+        private long priceInCents;
 
         private Builder() {
         }
@@ -65,13 +74,21 @@ public final class Product {
             return this;
         }
 
+        /**
+         * Sets the price, rounding down any fraction of a cent
+         */
         public Builder setPrice(BigDecimal price) {
-            this.price = price;
+            this.priceInCents = Money.cents(price);
+            return this;
+        }
+
+        public Builder setPriceInCents(long priceInCents) {
+            this.priceInCents = priceInCents;
             return this;
         }
 
         public Product build() {
-            return new Product(id, name, price);
+            return new Product(id, name, priceInCents);
         }
     }
 
@@ -85,7 +102,7 @@ public final class Product {
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return hash;
     }
 
     @Override
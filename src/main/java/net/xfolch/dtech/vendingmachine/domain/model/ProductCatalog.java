@@ -0,0 +1,146 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Catalog that interns products, so that vending machines with the same products share the same
+ * instances of them, and that hands out a dense handle for each one, so that vending machines may
+ * refer to their products by a plain {@code int}.
+ * <p>
+ * Products are interned by their whole value, that is, their id, name and price, since products
+ * are otherwise told apart by their id alone: two products with the same id but different prices
+ * get different handles. The price in cents of every product is also held in a primitive array by
+ * handle, so it is read without reaching the product.
+ * <p>
+ * It is thread-safe, and looking up a product that is already in the catalog takes no lock and
+ * allocates nothing: the handles are indexed by product id, and the few products that share an
+ * id, such as the ones whose price has changed, are compared by value one after another.
+ * <p>
+ * Products are never removed from it, so the global catalog holds every distinct product that
+ * vending machines have been built with for as long as the process lives. It is meant for the
+ * bounded assortment of an operator, whose prices change now and then, and not for products
+ * made up on the fly.
+ */
+public final class ProductCatalog {
+
+    private static final ProductCatalog GLOBAL = new ProductCatalog();
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NONE = -1;
+    private static final int[] NO_HANDLES = new int[0];
+
+    private final Map<Integer, int[]> handlesById;
+    private volatile int[] handlesWithoutId;
+    private volatile Product[] products;
+    private volatile long[] prices;
+    private int size;
+
+    private ProductCatalog() {
+        this.handlesById = new ConcurrentHashMap<>();
+        this.handlesWithoutId = NO_HANDLES;
+        this.products = new Product[INITIAL_CAPACITY];
+        this.prices = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the catalog that every supplier interns its products into
+     */
+    public static ProductCatalog global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @return the instance of the catalog with the same id, name and price as the given product, which
+     * is the given one if the catalog did not have it yet
+     */
+    public Product intern(Product product) {
+        return product(handleOf(product));
+    }
+
+    /**
+     * @return the handle of the given product, adding it to the catalog if it did not have it yet
+     */
+    public int handleOf(Product product) {
+        int handle = find(product);
+        return handle != NONE ? handle : add(product);
+    }
+
+    public Product product(int handle) {
+        return products[handle];
+    }
+
+    public long priceInCents(int handle) {
+        return prices[handle];
+    }
+
+    /**
+     * @return how many products the catalog has
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return the handle of the product with the same value as the given one, or {@link #NONE}
+     */
+    private int find(Product product) {
+        int[] handles = handlesOf(product.getId());
+        if (handles == null) {
+            return NONE;
+        }
+
+        Product[] products = this.products;
+        for (int handle : handles) {
+            if (sameValue(products[handle], product)) {
+                return handle;
+            }
+        }
+
+        return NONE;
+    }
+
+    private int[] handlesOf(Integer id) {
+        return id != null ? handlesById.get(id) : handlesWithoutId;
+    }
+
+    /**
+     * The product is written before its handle is published through the map, and grown arrays
+     * are published before that, so whoever gets a handle finds its product
+     */
+    private synchronized int add(Product product) {
+        int handle = find(product);
+        if (handle != NONE) {
+            return handle;
+        }
+
+        if (size == products.length) {
+            products = Arrays.copyOf(products, size * 2);
+            prices = Arrays.copyOf(prices, size * 2);
+        }
+        products[size] = product;
+        prices[size] = product.getPriceInCents();
+
+        int[] handles = handlesOf(product.getId());
+        handles = handles != null ? Arrays.copyOf(handles, handles.length + 1) : new int[1];
+        handles[handles.length - 1] = size;
+        if (product.getId() != null) {
+            handlesById.put(product.getId(), handles);
+        } else {
+            handlesWithoutId = handles;
+        }
+
+        return size++;
+    }
+
+    /**
+     * Products are otherwise told apart by their id alone
+     */
+    private static boolean sameValue(Product product, Product other) {
+        return product.getPriceInCents() == other.getPriceInCents()
+                && Objects.equals(product.getId(), other.getId())
+                && Objects.equals(product.getName(), other.getName());
+    }
+
+}
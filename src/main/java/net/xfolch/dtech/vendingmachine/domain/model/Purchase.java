@@ -19,10 +19,12 @@ public final class Purchase {
 
     private final Product product;
     private final List<Coin> remaining;
+    private final long remainingInCents;
 
-    private Purchase(Product product, List<Coin> remaining) {
+    private Purchase(Product product, List<Coin> remaining, long remainingInCents) {
         this.product = product;
         this.remaining = remaining;
+        this.remainingInCents = remainingInCents;
     }
 
     public Product getProduct() {
@@ -33,6 +35,13 @@ public final class Purchase {
         return remaining;
     }
 
+    /**
+     * @return the total amount of the remaining coins in cents
+     */
+    public long getRemainingInCents() {
+        return remainingInCents;
+    }
+
     /**
      * @return a mutable builder to make a Purchase instance
      */
@@ -46,6 +55,7 @@ public final class Purchase {
     public static final class Builder {
         Product product;
         List<Coin> remaining = Collections.emptyList();
+        long remainingInCents;
 
         private Builder() {
         }
@@ -58,13 +68,17 @@ public final class Purchase {
         public Builder setRemaining(List<Coin> remaining) {
             if (remaining != null) {
                 this.remaining = Collections.unmodifiableList(new ArrayList<>(remaining));
+                this.remainingInCents = 0;
+                for (Coin coin : remaining) {
+                    this.remainingInCents += coin.cents();
+                }
             }
 
             return this;
         }
 
         public Purchase build() {
-            return new Purchase(product, remaining);
+            return new Purchase(product, remaining, remainingInCents);
         }
     }
 
@@ -0,0 +1,144 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.text.MessageFormat;
+import java.util.*;
+
+/**
+ * Represents what a supplier has to bring to a vending machine to refill it: the units of every
+ * product and the coins of every denomination that it misses.
+ * <p>
+ * A refill only adds what is listed, so it leaves alone whatever the vending machine still has,
+ * unlike a reset.
+ */
+public final class RefillManifest {
+
+    private final int machine;
+    private final Map<Integer, Integer> units;
+    private final Map<Coin, Long> coins;
+    private final boolean nearExactChangeOnly;
+
+    private RefillManifest(int machine, Map<Integer, Integer> units, Map<Coin, Long> coins, boolean nearExactChangeOnly) {
+        this.machine = machine;
+        this.units = units;
+        this.coins = coins;
+        this.nearExactChangeOnly = nearExactChangeOnly;
+    }
+
+    /**
+     * @return the index of the vending machine among the ones that the refills were planned for
+     */
+    public int getMachine() {
+        return machine;
+    }
+
+    /**
+     * @return the units to add by product id
+     */
+    public Map<Integer, Integer> getUnits() {
+        return units;
+    }
+
+    /**
+     * @return the coins to add by denomination
+     */
+    public Map<Coin, Long> getCoins() {
+        return coins;
+    }
+
+    /**
+     * @return whether the vending machine asks, or is a coin away from asking, for the exact amount
+     */
+    public boolean isNearExactChangeOnly() {
+        return nearExactChangeOnly;
+    }
+
+    public int getTotalUnits() {
+        int total = 0;
+        for (int count : units.values()) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return units.isEmpty() && coins.isEmpty();
+    }
+
+    /**
+     * @return a mutable builder to make a RefillManifest instance
+     */
+    public static Builder builder(int machine) {
+        return new Builder(machine);
+    }
+
+    /**
+     * Mutable builder
+     */
+    public static final class Builder {
+        private final int machine;
+        private final Map<Integer, Integer> units = new LinkedHashMap<>();
+        private final Map<Coin, Long> coins = new EnumMap<>(Coin.class);
+        private boolean nearExactChangeOnly;
+
+        private Builder(int machine) {
+            this.machine = machine;
+        }
+
+        /**
+         * Nothing is added unless the number of units is positive
+         */
+        public Builder addUnits(Integer productId, int numUnits) {
+            if (numUnits > 0) {
+                units.merge(productId, numUnits, Integer::sum);
+            }
+
+            return this;
+        }
+
+        /**
+         * Nothing is added unless the count is positive
+         */
+        public Builder addCoins(Coin coin, long count) {
+            if (coin != null && count > 0) {
+                coins.merge(coin, count, Long::sum);
+            }
+
+            return this;
+        }
+
+        public Builder setNearExactChangeOnly(boolean nearExactChangeOnly) {
+            this.nearExactChangeOnly = nearExactChangeOnly;
+            return this;
+        }
+
+        public RefillManifest build() {
+            return new RefillManifest(machine,
+                    Collections.unmodifiableMap(new LinkedHashMap<>(units)),
+                    Collections.unmodifiableMap(new EnumMap<>(coins)),
+                    nearExactChangeOnly);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RefillManifest that = (RefillManifest) o;
+        return machine == that.machine &&
+                nearExactChangeOnly == that.nearExactChangeOnly &&
+                Objects.equals(units, that.units) &&
+                Objects.equals(coins, that.coins);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(machine, units, coins, nearExactChangeOnly);
+    }
+
+    @Override
+    public String toString() {
+        return MessageFormat.format("Refill({0}, Units({1}), Coins({2}){3})",
+                machine, units, coins, nearExactChangeOnly ? ", near exact change only" : "");
+    }
+}
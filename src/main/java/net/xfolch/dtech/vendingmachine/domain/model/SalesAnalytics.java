@@ -0,0 +1,78 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Live analytics of the sales of the vending machines of an analyzed supplier, which are analyzed
+ * off the purchase thread, so that vending machines never wait for them:
+ * <ul>
+ *     <li>units and revenue per second over a sliding window of {@link #WINDOW_SECONDS}</li>
+ *     <li>revenue in cents per product and per vending machine</li>
+ *     <li>an estimate of the units sold of every product, which keeps the {@link #TOP_SELLERS}
+ *     top sellers</li>
+ *     <li>the units left and the pace of sales of every product of every vending machine, which
+ *     forecast when it will be sold out</li>
+ * </ul>
+ * Vending machines are numbered from zero in the order that the supplier builds them.
+ */
+public interface SalesAnalytics {
+
+    int WINDOW_SECONDS = 60;
+    int TOP_SELLERS = 10;
+
+    /**
+     * @return the units sold over the given last seconds, up to {@link #WINDOW_SECONDS}
+     */
+    long unitsSold(int seconds);
+
+    /**
+     * @return the revenue in cents over the given last seconds, up to {@link #WINDOW_SECONDS}
+     */
+    long revenueInCents(int seconds);
+
+    long productRevenueInCents(Integer productId);
+
+    /**
+     * @param machine number of the vending machine, in the order it was built
+     */
+    long machineRevenueInCents(int machine);
+
+    /**
+     * @return an estimate of the units sold of the given product, which is never less than the
+     * actual ones
+     */
+    long estimatedUnitsSold(Integer productId);
+
+    /**
+     * @return the ids of the products that sold the most, from the top seller down
+     */
+    List<Integer> topSellers();
+
+    /**
+     * Forecasts at the pace of the sales of the product in the vending machine so far
+     *
+     * @param machine number of the vending machine, in the order it was built
+     * @return how long after its last sale the product will be sold out in the vending machine, or
+     * nothing if it has not been sold often enough to tell
+     */
+    Optional<Duration> stockOutForecast(int machine, Integer productId);
+
+    /**
+     * @return how many sales were offered when the analytics could not keep up, and so were not analyzed
+     */
+    long dropped();
+
+    /**
+     * Waits until the sales offered so far have been analyzed
+     */
+    void flush();
+
+    /**
+     * Analyzes the sales offered so far and stops the thread of the analytics, so that the sales
+     * offered from now on are dropped
+     */
+    void shutdown();
+
+}
@@ -0,0 +1,44 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.List;
+
+/**
+ * Operation of a consumer in a vending machine, from the first inserted coin until they select
+ * a product or cancel.
+ * <p>
+ * Every session keeps its own credit, whereas products and cash belong to the vending machine
+ * the session was opened from, so many sessions can share the same vending machine.
+ */
+public interface Session {
+
+    /**
+     * @param coin that will be part of the session credit
+     * @return this session, with its credit incremented by the given coin
+     */
+    Session insertCoin(Coin coin);
+
+    /**
+     * Trying to select a product with the session credit, which may fail for the same reasons as
+     * {@link VendingMachine#selectProduct(Integer)}. The credit is only spent on success.
+     *
+     * @param productId identifies the product that the consumer want to purchase
+     * @return a try of getting the product by the session credit along with the remaining coins
+     */
+    Try<Purchase> selectProduct(Integer productId);
+
+    /**
+     * Purchases a whole order with the session credit, in the same way as {@link VendingMachine#purchase(Order)}
+     *
+     * @param order with the coins to pay with and the products to purchase
+     * @return a try of getting every product of the order, in the same order
+     */
+    List<Try<Purchase>> purchase(Order order);
+
+    /**
+     * Cancels the operation so the session returns the previous inserted coins
+     *
+     * @return the previous inserted coins
+     */
+    List<Coin> cancel();
+
+}
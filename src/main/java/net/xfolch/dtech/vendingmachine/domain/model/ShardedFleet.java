@@ -0,0 +1,79 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import java.util.List;
+
+/**
+ * Runtime that serves a fleet of vending machines over a few shards, each one with a thread of its
+ * own.
+ * <p>
+ * Every vending machine is owned by a shard, which makes all of its operations, one after another,
+ * so the vending machines themselves need no synchronization. Operations are routed by the id of
+ * the vending machine, that is, its index in the fleet. Vending machines are moved from busy shards
+ * to idle ones by {@link #rebalance()}: a vending machine that is moved finishes the operations that
+ * its old shard is making, and the following ones are made by the new shard, still in order.
+ */
+public interface ShardedFleet {
+
+    /**
+     * @return how many vending machines the fleet has
+     */
+    int size();
+
+    /**
+     * @return the non-blocking facade of the vending machine of the given id
+     */
+    AsyncVendingMachine machine(int machineId);
+
+    /**
+     * @return the shard that owns the vending machine of the given id at the moment
+     */
+    int shardOf(int machineId);
+
+    /**
+     * Moves vending machines from the busiest shard to the most idle one, as long as that evens out
+     * the operations that they made since the previous rebalance, busiest vending machines first
+     *
+     * @return how many vending machines were moved
+     */
+    int rebalance();
+
+    /**
+     * @return the statistics of every shard since the previous call, or since the fleet started
+     */
+    List<ShardStats> stats();
+
+    /**
+     * Stops the threads of the shards once they have made the operations already requested
+     */
+    void shutdown();
+
+    /**
+     * Statistics of a shard over some period
+     */
+    interface ShardStats {
+
+        int shard();
+
+        /**
+         * @return how many vending machines the shard owns
+         */
+        int machines();
+
+        /**
+         * @return how many operations of its vending machines are waiting to be made
+         */
+        long queueDepth();
+
+        /**
+         * @return how many operations its vending machines made over the period
+         */
+        long operations();
+
+        /**
+         * @return the operations per second made over the period
+         */
+        double throughput();
+
+    }
+
+}
@@ -1,5 +1,9 @@
 package net.xfolch.dtech.vendingmachine.domain.model;
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Represents a vending machine supplier, who is responsible for providing vending machines
  * and maintaining them
@@ -21,4 +25,76 @@ public interface Supplier {
      */
     void reset(VendingMachine vendingMachine);
 
+    /**
+     * Takes the given vending machine out of service, releasing whatever it holds, such as the open
+     * files of the suppliers that persist it. It must not be used any more, although such suppliers
+     * recover its state the next time it is built.
+     *
+     * @param vendingMachine to be retired
+     */
+    default void retire(VendingMachine vendingMachine) {
+    }
+
+    /**
+     * Releases what the supplier itself holds, such as the threads that serve its vending machines,
+     * once they have made the operations already requested. Vending machines whose operations are
+     * served by such threads must not be used any more.
+     */
+    default void shutdown() {
+    }
+
+    /**
+     * Resets all the given vending machines, as {@link #reset(VendingMachine)} does, where suppliers
+     * may spread the work over several threads. Every vending machine must be given only once and
+     * not be in use meanwhile.
+     *
+     * @param vendingMachines to be reset
+     */
+    default void resetAll(Collection<VendingMachine> vendingMachines) {
+        vendingMachines.forEach(this::reset);
+    }
+
+    /**
+     * Writes a point-in-time snapshot of the stock, cash and credit of the given vending machines into
+     * the given file, replacing it. The vending machines must not be in use meanwhile.
+     * <p>
+     * The credit is the one inserted into the vending machine itself, so the credit of the sessions
+     * opened on it, through {@link VendingMachine#openSession()}, is not part of the snapshot.
+     *
+     * @param vendingMachines of this supplier whose state is written, in this order
+     * @param file            where the snapshot is written
+     */
+    void snapshot(List<VendingMachine> vendingMachines, Path file);
+
+    /**
+     * Restores the stock, cash and credit of the given vending machines from the given snapshot, in
+     * place. They must be as many, and have the same products, as the ones that were snapshot, and
+     * they must not be in use meanwhile.
+     *
+     * @param vendingMachines of this supplier whose state is restored, in the order they were snapshot
+     * @param file            where the snapshot was written
+     */
+    void restore(List<VendingMachine> vendingMachines, Path file);
+
+    /**
+     * Plans the refills of the given vending machines, which are scanned in parallel: the units that
+     * every slot misses, and the coins that the cash misses if it is close to ask for the exact amount,
+     * both up to the levels that the vending machine was built with. The vending machines must not be
+     * in use meanwhile.
+     *
+     * @param vendingMachines of this supplier to be scanned
+     * @return the refills of the vending machines that miss something, the ones close to ask for the
+     * exact amount first, and then the ones that miss the most units
+     */
+    List<RefillManifest> planRefills(List<VendingMachine> vendingMachines);
+
+    /**
+     * Adds the units and coins of the given refill to the given vending machine, leaving alone the
+     * rest of its state
+     *
+     * @param vendingMachine to be refilled, which must not be in use meanwhile
+     * @param refill         planned for it
+     */
+    void refill(VendingMachine vendingMachine, RefillManifest refill);
+
 }
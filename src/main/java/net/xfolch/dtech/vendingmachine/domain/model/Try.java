@@ -11,6 +11,9 @@ import java.util.function.Supplier;
  * <p>
  * This abstraction provides some flexibility to manage different failure scenarios.
  * <p>
+ * On success, {@link #filter(Predicate, Supplier)} and {@link #flatMap(Function)} do not allocate
+ * anything, and {@link #map(Function)} only allocates the new success. On failure, no step allocates.
+ * <p>
  * Created by xfolch on 7/8/16.
  */
 public abstract class Try<T> {
@@ -93,12 +96,28 @@ public abstract class Try<T> {
 
         @Override
         public <R> Try<R> map(Function<? super T, ? extends R> mapping) {
-            return map(value, mapping);
+            try {
+                return new Success<>(mapping.apply(value));
+            } catch (Exception e) {
+                return new Failure<>(e);
+            }
         }
 
+        /**
+         * Try is immutable, so the resulting try can be safely seen as a try of its super type. A
+         * mapping that gives no try at all is a failure, as any other mapping that fails.
+         */
+        @SuppressWarnings("unchecked")
         @Override
         public <R> Try<R> flatMap(Function<? super T, ? extends Try<? extends R>> mapping) {
-            return flat(map(value, mapping));
+            try {
+                Try<R> mapped = (Try<R>) mapping.apply(value);
+                return mapped != null
+                        ? mapped
+                        : new Failure<>(new NullPointerException("The mapping of " + value + " gave no try"));
+            } catch (Exception e) {
+                return new Failure<>(e);
+            }
         }
 
         @Override
@@ -113,14 +132,6 @@ public abstract class Try<T> {
             return this;
         }
 
-        private static <T, R> Try<R> map(T value, Function<? super T, ? extends R> mapping) {
-            return Try.that(() -> mapping.apply(value));
-        }
-
-        private static <R> Try<R> flat(Try<? extends Try<? extends R>> mapping) {
-            return Try.that(() -> mapping.getOrThrowException().getOrThrowException());
-        }
-
         @Override
         public String toString() {
             return "Success(" + value + ")";
@@ -1,6 +1,7 @@
 package net.xfolch.dtech.vendingmachine.domain.model;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -29,6 +30,8 @@ public interface VendingMachine {
      *     <li>{@link ProductNotExists} in case of the given product does not exist in the
      *     vending machine</li>
      *     <li>{@link ProductNotAvailable} in case of the given product does not have stock</li>
+     *     <li>{@link NotEnoughChange} in case of the vending machine cannot give back the change, the
+     *     credit is kept so that the consumer can cancel the operation</li>
      * </ul>
      *
      * @param productId identifies the product that the consumer want to purchase
@@ -36,6 +39,21 @@ public interface VendingMachine {
      */
     Try<Purchase> selectProduct(Integer productId);
 
+    /**
+     * Purchases a whole order in one go: its coins are inserted as credit, and then every product is
+     * selected one after another against such credit, which is summed only once.
+     * <p>
+     * Every product may fail for the same reasons as {@link #selectProduct(Integer)}. The change of
+     * the whole order is figured out once, at the end, and given back along with the last product
+     * that was purchased. If such change cannot be given back, no product is purchased at all and
+     * all of them fail with {@link NotEnoughChange}. When no product is purchased the credit is kept,
+     * so that the consumer can cancel the operation.
+     *
+     * @param order with the coins to pay with and the products to purchase
+     * @return a try of getting every product of the order, in the same order
+     */
+    List<Try<Purchase>> purchase(Order order);
+
     /**
      * Cancels the operation so the vending machine returns the previous inserted coins
      *
@@ -43,42 +61,123 @@ public interface VendingMachine {
      */
     List<Coin> cancel();
 
+    /**
+     * Opens a new session in this vending machine, which has its own credit apart from the one of
+     * this vending machine and any other session, whereas it shares the products and the cash.
+     * <p>
+     * Sessions may be used concurrently only if the vending machine is thread-safe
+     *
+     * @return a new session without credit
+     */
+    Session openSession();
+
+    /**
+     * Tells whether the cash of this vending machine is short of coins to give back the change of
+     * every amount that paying with a single coin may need, so that consumers should be asked to
+     * pay with the exact amount. It is kept up to date as the cash changes, so it is cheap to ask for.
+     *
+     * @return whether consumers should pay with the exact amount
+     */
+    boolean isExactChangeOnly();
+
     /**
      * Represents a configuration contract to build a vending machine
      */
     interface Builder {
         Builder addProduct(Product product, Integer numUnits);
         Builder setCash(List<Coin> cash);
+
+        /**
+         * Names the vending machine to be built, so that suppliers that persist their vending machines
+         * tell it apart and find its state again the next time it is built. Other suppliers ignore it.
+         *
+         * @param name made of letters, digits, underscores and hyphens
+         * @return a builder of a vending machine with the given name
+         */
+        default Builder setName(String name) {
+            return this;
+        }
+
         VendingMachine build();
+
+        /**
+         * Builds the given number of vending machines alike, each one with its own state. Suppliers
+         * that provision whole fleets may lay them out together instead of one by one.
+         *
+         * @param count number of vending machines to build
+         * @return the vending machines built
+         */
+        default List<VendingMachine> build(int count) {
+            List<VendingMachine> vendingMachines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                vendingMachines.add(build());
+            }
+
+            return vendingMachines;
+        }
+
+        /**
+         * Builds one vending machine alike for every given name, as {@link #build(int)} does, where
+         * every vending machine is named as {@link #setName(String)} does
+         *
+         * @param names of the vending machines to build
+         * @return the vending machines built, in the order of their names
+         */
+        default List<VendingMachine> build(List<String> names) {
+            return build(names.size());
+        }
     }
 
+    /*
+     * Failures are expected outcomes rather than bugs, so they do not record their stack trace and
+     * the same instance is handed out for the same product
+     */
+
     final class NotEnoughCredit extends RuntimeException {
+        private static final FailureCache<NotEnoughCredit> CACHE = FailureCache.of(NotEnoughCredit::new);
+
         private NotEnoughCredit(Integer productId) {
-            super("Not enough credit to select product " + productId);
+            super("Not enough credit to select product " + productId, null, false, false);
         }
 
         public static NotEnoughCredit newOne(Integer productId) {
-            return new NotEnoughCredit(productId);
+            return CACHE.get(productId);
         }
     }
 
     final class ProductNotAvailable extends RuntimeException {
+        private static final FailureCache<ProductNotAvailable> CACHE = FailureCache.of(ProductNotAvailable::new);
+
         private ProductNotAvailable(Integer productId) {
-            super(MessageFormat.format("Product {0} is not available", productId));
+            super(MessageFormat.format("Product {0} is not available", productId), null, false, false);
         }
 
         public static ProductNotAvailable newOne(Integer productId) {
-            return new ProductNotAvailable(productId);
+            return CACHE.get(productId);
+        }
+    }
+
+    final class NotEnoughChange extends RuntimeException {
+        private static final FailureCache<NotEnoughChange> CACHE = FailureCache.of(NotEnoughChange::new);
+
+        private NotEnoughChange(Integer productId) {
+            super(MessageFormat.format("Not enough change to select product {0}", productId), null, false, false);
+        }
+
+        public static NotEnoughChange newOne(Integer productId) {
+            return CACHE.get(productId);
         }
     }
 
     final class ProductNotExists extends RuntimeException {
+        private static final FailureCache<ProductNotExists> CACHE = FailureCache.of(ProductNotExists::new);
+
         private ProductNotExists(Integer productId) {
-            super(MessageFormat.format("Product {0} does not exist", productId));
+            super(MessageFormat.format("Product {0} does not exist", productId), null, false, false);
         }
 
         public static ProductNotExists newOne(Integer productId) {
-            return new ProductNotExists(productId);
+            return CACHE.get(productId);
         }
     }
 }
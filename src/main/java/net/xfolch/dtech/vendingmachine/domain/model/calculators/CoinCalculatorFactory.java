@@ -20,4 +20,28 @@ public final class CoinCalculatorFactory {
         return LowestValuedCoinCalculator.newOne();
     }
 
+    /**
+     * @return a calculator that gives the same change as the highest-valued one, but working on
+     * the number of coins per denomination so that big cash amounts are cheap to handle
+     */
+    public static CoinCalculator denominationCoinCalculator() {
+        return DenominationCoinCalculator.newOne();
+    }
+
+    /**
+     * @return a calculator that always finds the exact change, with the fewest coins, when the cash
+     * allows it, and refuses to give back any change otherwise
+     */
+    public static CoinCalculator exactChangeCoinCalculator() {
+        return ExactChangeCoinCalculator.newOne();
+    }
+
+    /**
+     * @return a calculator that gives the same change as the exact change one, but looking up the
+     * change of usual amounts in a precomputed table instead of searching for it
+     */
+    public static CoinCalculator lookupTableCoinCalculator() {
+        return LookupTableCoinCalculator.newOne();
+    }
+
 }
@@ -0,0 +1,70 @@
+package net.xfolch.dtech.vendingmachine.domain.model.calculators;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static net.xfolch.dtech.vendingmachine.domain.model.calculators.Denominations.*;
+
+/**
+ * Coin calculator that works on the number of coins held for each denomination instead of
+ * walking the cash coin by coin.
+ * <p>
+ * The cash is folded once into a counts array indexed by {@link Coin#ordinal()}, and the change
+ * is taken greedily from the highest-valued denomination down, so it gives the same change as
+ * the highest-valued strategy without recursion nor intermediate lists.
+ */
+final class DenominationCoinCalculator implements CoinCalculator {
+
+    private DenominationCoinCalculator() {
+    }
+
+    static DenominationCoinCalculator newOne() {
+        return new DenominationCoinCalculator();
+    }
+
+    @Override
+    public long sum(Collection<Coin> coins) {
+        return Denominations.sum(coins);
+    }
+
+    @Override
+    public long remaining(List<Coin> credit, long price) {
+        return sum(credit) - price;
+    }
+
+    @Override
+    public List<Coin> change(List<Coin> cash, long remaining) {
+        if (remaining <= 0 || cash.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return change(counts(cash), remaining);
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(CoinCounts cash, long remaining) {
+        if (remaining <= 0) {
+            return Optional.of(new ArrayList<>());
+        }
+
+        return Optional.of(change(counts(cash), remaining));
+    }
+
+    private static List<Coin> change(long[] counts, long remaining) {
+        long pending = remaining;
+
+        for (int i = COINS.length - 1; i >= 0; i--) {
+            counts[i] = Math.min(counts[i], pending / CENTS[i]);
+            pending -= counts[i] * CENTS[i];
+        }
+
+        return expand(counts);
+    }
+
+}
@@ -0,0 +1,104 @@
+package net.xfolch.dtech.vendingmachine.domain.model.calculators;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Integer-cent tables of the coin denominations shared by the calculators that work on the
+ * number of coins per denomination, indexed by {@link Coin#ordinal()}.
+ * <p>
+ * It relies on {@link Coin} being declared from the lowest to the highest value.
+ */
+final class Denominations {
+
+    static final Coin[] COINS = Coin.values();
+    static final long[] CENTS = centsByOrdinal();
+
+    /**
+     * Greatest common divisor of all the denominations, no amount that is not a multiple of
+     * it can be paid
+     */
+    static final long UNIT = Coin.unitInCents();
+
+    private Denominations() {
+    }
+
+    /**
+     * Folds the given coins into the number of coins per denomination
+     */
+    static long[] counts(Collection<Coin> coins) {
+        long[] counts = new long[COINS.length];
+        for (Coin coin : coins) {
+            counts[coin.ordinal()]++;
+        }
+
+        return counts;
+    }
+
+    /**
+     * Reads the given view into the number of coins per denomination
+     */
+    static long[] counts(CoinCounts coins) {
+        long[] counts = new long[COINS.length];
+        for (Coin coin : COINS) {
+            counts[coin.ordinal()] = coins.count(coin);
+        }
+
+        return counts;
+    }
+
+    /**
+     * Expands the number of coins per denomination into a list, from the highest to the lowest value
+     */
+    static List<Coin> expand(long[] counts) {
+        List<Coin> coins = new ArrayList<>((int) numCoins(counts));
+        for (int i = COINS.length - 1; i >= 0; i--) {
+            for (long n = counts[i]; n > 0; n--) {
+                coins.add(COINS[i]);
+            }
+        }
+
+        return coins;
+    }
+
+    static long sum(Collection<Coin> coins) {
+        long total = 0;
+        for (Coin coin : coins) {
+            total += coin.cents();
+        }
+
+        return total;
+    }
+
+    static long numCoins(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+
+        return total;
+    }
+
+    static long sumCents(long[] counts) {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i] * CENTS[i];
+        }
+
+        return total;
+    }
+
+    private static long[] centsByOrdinal() {
+        long[] cents = new long[COINS.length];
+        for (Coin coin : COINS) {
+            cents[coin.ordinal()] = coin.cents();
+        }
+
+        return cents;
+    }
+
+}
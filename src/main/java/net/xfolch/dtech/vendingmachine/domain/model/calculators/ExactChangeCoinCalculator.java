@@ -0,0 +1,173 @@
+package net.xfolch.dtech.vendingmachine.domain.model.calculators;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static net.xfolch.dtech.vendingmachine.domain.model.calculators.Denominations.*;
+
+/**
+ * Coin calculator that always gives the exact change when some combination of the cash
+ * makes it up, using the fewest number of coins.
+ * <p>
+ * It solves a bounded knapsack over integer amounts of {@link Denominations#UNIT} cents: for each
+ * denomination, the fewest coins to pay every amount is the minimum over a window as wide as
+ * the available coins of that denomination, which is kept with a monotonic queue. So the cost
+ * is linear in the change amount for each denomination, whatever the number of coins in the cash.
+ * The tables of the search are scratch arrays of the calling thread, which are reused for every
+ * change up to {@link #SCRATCH_UNITS} units, so that usual changes allocate only their result.
+ * <p>
+ * Unlike greedy calculators, it never gives back less than the remaining amount: if the change
+ * cannot be made up, {@link #changeIfPossible(List, long)} says so and {@link #change(List, long)}
+ * gives back nothing.
+ */
+final class ExactChangeCoinCalculator implements CoinCalculator {
+
+    private static final int IMPOSSIBLE = Integer.MAX_VALUE;
+    private static final int SCRATCH_UNITS = 1_024;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(() -> new Scratch(SCRATCH_UNITS));
+
+    private ExactChangeCoinCalculator() {
+    }
+
+    static ExactChangeCoinCalculator newOne() {
+        return new ExactChangeCoinCalculator();
+    }
+
+    @Override
+    public long sum(Collection<Coin> coins) {
+        return Denominations.sum(coins);
+    }
+
+    @Override
+    public long remaining(List<Coin> credit, long price) {
+        return sum(credit) - price;
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public List<Coin> change(List<Coin> cash, long remaining) {
+        return changeIfPossible(cash, remaining).orElseGet(ArrayList::new);
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(List<Coin> cash, long remaining) {
+        return changeIfPossible(counts(cash), remaining);
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(CoinCounts cash, long remaining) {
+        return changeIfPossible(counts(cash), remaining);
+    }
+
+    private static Optional<List<Coin>> changeIfPossible(long[] counts, long remaining) {
+        if (remaining <= 0) {
+            return Optional.of(new ArrayList<>());
+        }
+
+        if (remaining % UNIT != 0 || remaining > sumCents(counts)) {
+            return Optional.empty();
+        }
+
+        return solve(counts, (int) (remaining / UNIT)).map(Denominations::expand);
+    }
+
+    /**
+     * Bounded knapsack that minimizes the number of coins needed to pay the given amount of units
+     *
+     * @return the number of coins to take per denomination, if any
+     */
+    static Optional<long[]> solve(long[] counts, int amount) {
+        Scratch scratch = amount <= SCRATCH_UNITS ? SCRATCH.get() : new Scratch(amount);
+        int[] best = scratch.best;
+        int[] previous = scratch.previous;
+        int[][] taken = scratch.taken;
+        int[] window = scratch.window;
+        int used = 0;
+
+        Arrays.fill(best, 0, amount + 1, IMPOSSIBLE);
+        best[0] = 0;
+
+        for (int i = 0; i < COINS.length; i++) {
+            int value = (int) (CENTS[i] / UNIT);
+            int available = (int) Math.min(counts[i], amount / value);
+
+            if (available == 0) {
+                continue;
+            }
+
+            used |= 1 << i;
+            System.arraycopy(best, 0, previous, 0, amount + 1);
+
+            for (int residue = 0; residue < value && residue <= amount; residue++) {
+                int head = 0;
+                int tail = 0;
+
+                for (int j = 0, a = residue; a <= amount; j++, a += value) {
+                    if (previous[a] != IMPOSSIBLE) {
+                        while (tail > head && key(previous, window[tail - 1], residue, value) >= previous[a] - j) {
+                            tail--;
+                        }
+                        window[tail++] = j;
+                    }
+
+                    while (tail > head && window[head] < j - available) {
+                        head++;
+                    }
+
+                    if (tail > head) {
+                        int from = window[head];
+                        best[a] = key(previous, from, residue, value) + j;
+                        taken[i][a] = j - from;
+                    } else {
+                        best[a] = IMPOSSIBLE;
+                    }
+                }
+            }
+        }
+
+        if (best[amount] == IMPOSSIBLE) {
+            return Optional.empty();
+        }
+
+        long[] change = new long[COINS.length];
+        for (int i = COINS.length - 1, a = amount; i >= 0; i--) {
+            change[i] = (used & 1 << i) != 0 ? taken[i][a] : 0;
+            a -= (int) change[i] * (int) (CENTS[i] / UNIT);
+        }
+
+        return Optional.of(change);
+    }
+
+    /**
+     * Tables of the search, which only the entries up to the amount being solved are meaningful of
+     */
+    private static final class Scratch {
+        final int[] best;
+        final int[] previous;
+        final int[][] taken;
+        final int[] window;
+
+        Scratch(int units) {
+            this.best = new int[units + 1];
+            this.previous = new int[units + 1];
+            this.taken = new int[COINS.length][units + 1];
+            this.window = new int[units + 1];
+        }
+    }
+
+    private static int key(int[] previous, int j, int residue, int value) {
+        return previous[residue + j * value] - j;
+    }
+
+}
@@ -21,7 +21,7 @@ final class HighestValuedCoinCalculator extends RecursiveCoinCalculator {
     @Override
     List<Coin> sort(List<Coin> cash) {
         List<Coin> defensiveCopy = new ArrayList<>(cash);
-        defensiveCopy.sort((c1, c2) -> c2.value().compareTo(c1.value()));
+        defensiveCopy.sort((c1, c2) -> Integer.compare(c2.cents(), c1.cents()));
 
         return defensiveCopy;
     }
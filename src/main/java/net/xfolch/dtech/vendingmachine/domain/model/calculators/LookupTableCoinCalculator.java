@@ -0,0 +1,139 @@
+package net.xfolch.dtech.vendingmachine.domain.model.calculators;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static net.xfolch.dtech.vendingmachine.domain.model.calculators.Denominations.*;
+
+/**
+ * Coin calculator that gives the same change as {@link ExactChangeCoinCalculator}, but looks it
+ * up in a table most of the time.
+ * <p>
+ * Change amounts are small and the denominations are fixed, so the fewest coins that pay every
+ * amount up to {@link #MAX_CHANGE} cents, as if the cash had unlimited coins, are figured out
+ * once. When the cash has enough coins of every denomination in the table entry, that is the
+ * change, since no bounded combination can take fewer coins. Otherwise, the cash is short of some
+ * denomination and the change is searched for as the exact calculator does.
+ */
+final class LookupTableCoinCalculator implements CoinCalculator {
+
+    static final long MAX_CHANGE = 1_000;
+
+    private static final int MAX_UNITS = (int) (MAX_CHANGE / UNIT);
+    private static final byte[] TABLE = fewestCoins();
+
+    private LookupTableCoinCalculator() {
+    }
+
+    static LookupTableCoinCalculator newOne() {
+        return new LookupTableCoinCalculator();
+    }
+
+    @Override
+    public long sum(Collection<Coin> coins) {
+        return Denominations.sum(coins);
+    }
+
+    @Override
+    public long remaining(List<Coin> credit, long price) {
+        return sum(credit) - price;
+    }
+
+    @Override
+    public boolean isExact() {
+        return true;
+    }
+
+    @Override
+    public List<Coin> change(List<Coin> cash, long remaining) {
+        return changeIfPossible(cash, remaining).orElseGet(ArrayList::new);
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(List<Coin> cash, long remaining) {
+        return changeIfPossible(counts(cash), remaining);
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(CoinCounts cash, long remaining) {
+        return changeIfPossible(counts(cash), remaining);
+    }
+
+    private static Optional<List<Coin>> changeIfPossible(long[] counts, long remaining) {
+        if (remaining <= 0) {
+            return Optional.of(new ArrayList<>());
+        }
+
+        if (remaining % UNIT != 0) {
+            return Optional.empty();
+        }
+
+        int amount = (int) Math.min(remaining / UNIT, Integer.MAX_VALUE);
+
+        if (amount <= MAX_UNITS) {
+            long[] change = lookUp(counts, amount);
+            if (change != null) {
+                return Optional.of(expand(change));
+            }
+        }
+
+        if (remaining > sumCents(counts)) {
+            return Optional.empty();
+        }
+
+        return ExactChangeCoinCalculator.solve(counts, amount).map(Denominations::expand);
+    }
+
+    /**
+     * @return the coins of the table entry of the given amount, or null if the cash is short of them
+     */
+    private static long[] lookUp(long[] counts, int amount) {
+        long[] change = new long[COINS.length];
+        for (int i = 0, entry = amount * COINS.length; i < COINS.length; i++, entry++) {
+            if (TABLE[entry] > counts[i]) {
+                return null;
+            }
+            change[i] = TABLE[entry];
+        }
+
+        return change;
+    }
+
+    /**
+     * Unbounded knapsack over every amount of units up to the maximum change, which leaves the
+     * number of coins per denomination of every amount one after another
+     */
+    private static byte[] fewestCoins() {
+        int[] best = new int[MAX_UNITS + 1];
+        int[] last = new int[MAX_UNITS + 1];
+
+        for (int amount = 1; amount <= MAX_UNITS; amount++) {
+            best[amount] = Integer.MAX_VALUE;
+            for (int i = COINS.length - 1; i >= 0; i--) {
+                int value = (int) (CENTS[i] / UNIT);
+                if (value <= amount && best[amount - value] + 1 < best[amount]) {
+                    best[amount] = best[amount - value] + 1;
+                    last[amount] = i;
+                }
+            }
+        }
+
+        byte[] table = new byte[(MAX_UNITS + 1) * COINS.length];
+        for (int amount = 1; amount <= MAX_UNITS; amount++) {
+            int entry = amount * COINS.length;
+            int from = amount - (int) (CENTS[last[amount]] / UNIT);
+
+            System.arraycopy(table, from * COINS.length, table, entry, COINS.length);
+            table[entry + last[amount]]++;
+        }
+
+        return table;
+    }
+
+}
@@ -21,7 +21,7 @@ final class LowestValuedCoinCalculator extends RecursiveCoinCalculator {
     @Override
     List<Coin> sort(List<Coin> cash) {
         List<Coin> defensiveCopy = new ArrayList<>(cash);
-        defensiveCopy.sort((c1, c2) -> c1.value().compareTo(c2.value()));
+        defensiveCopy.sort((c1, c2) -> Integer.compare(c1.cents(), c2.cents()));
 
         return defensiveCopy;
     }
@@ -3,12 +3,10 @@ package net.xfolch.dtech.vendingmachine.domain.model.calculators;
 import net.xfolch.dtech.vendingmachine.domain.model.Coin;
 import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
 
-import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
-import static java.math.BigDecimal.ZERO;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
@@ -21,37 +19,40 @@ abstract class RecursiveCoinCalculator implements CoinCalculator {
     }
 
     @Override
-    public BigDecimal sum(Collection<Coin> coins) {
-        return coins.stream()
-                .map(Coin::value)
-                .reduce(ZERO, BigDecimal::add);
+    public long sum(Collection<Coin> coins) {
+        long total = 0;
+        for (Coin coin : coins) {
+            total += coin.cents();
+        }
+
+        return total;
     }
 
     @Override
-    public BigDecimal remaining(List<Coin> credit, BigDecimal price) {
-        return sum(credit).subtract(price);
+    public long remaining(List<Coin> credit, long price) {
+        return sum(credit) - price;
     }
 
     @Override
-    public List<Coin> change(List<Coin> cash, BigDecimal remaining) {
+    public List<Coin> change(List<Coin> cash, long remaining) {
         return changeRec(sort(cash), remaining, emptyList());
     }
 
     abstract List<Coin> sort(List<Coin> cash);
 
-    private List<Coin> changeRec(List<Coin> cash, BigDecimal remaining, List<Coin> change) {
-        if (isZero(remaining) || cash.isEmpty()) {
+    private List<Coin> changeRec(List<Coin> cash, long remaining, List<Coin> change) {
+        if (remaining == 0 || cash.isEmpty()) {
             return change;
         } else {
             Coin coin = head(cash);
-            int compare = coin.value().compareTo(remaining);
+            int compare = Long.compare(coin.cents(), remaining);
 
             if (compare == 0) {
-                return changeRec(tail(cash), ZERO, add(change, coin));
+                return changeRec(tail(cash), 0, add(change, coin));
             } else if (compare > 0) {
                 return changeRec(removeCoin(cash, coin), remaining, change);
             } else {
-                return changeRec(tail(cash), subtract(remaining, coin), add(change, coin));
+                return changeRec(tail(cash), remaining - coin.cents(), add(change, coin));
             }
         }
     }
@@ -68,16 +69,8 @@ abstract class RecursiveCoinCalculator implements CoinCalculator {
         return coins.stream().filter(c -> !c.equals(coin)).collect(toList());
     }
 
-    private static boolean isZero(BigDecimal amount) {
-        return ZERO.equals(amount);
-    }
-
     private static List<Coin> add(List<Coin> coins, Coin coin) {
         return Stream.concat(coins.stream(), Stream.of(coin)).collect(toList());
     }
 
-    private static BigDecimal subtract(BigDecimal amount, Coin coin) {
-        return amount.subtract(coin.value());
-    }
-
 }
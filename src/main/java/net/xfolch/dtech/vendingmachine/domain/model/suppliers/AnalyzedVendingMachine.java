@@ -0,0 +1,153 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+
+import java.util.List;
+
+/**
+ * Decorates a vending machine so that it offers every sale to the given analytics, including the
+ * ones of its sessions, along with the units of the product that are left when the vending
+ * machine tells them
+ */
+final class AnalyzedVendingMachine implements VendingMachine, Seller, Resetable, Inventory {
+
+    private final VendingMachine vendingMachine;
+    private final SalesAnalyticsImpl analytics;
+    private final int machine;
+
+    private AnalyzedVendingMachine(VendingMachine vendingMachine, SalesAnalyticsImpl analytics, int machine) {
+        this.vendingMachine = vendingMachine;
+        this.analytics = analytics;
+        this.machine = machine;
+    }
+
+    static AnalyzedVendingMachine newOne(VendingMachine vendingMachine, SalesAnalyticsImpl analytics, int machine) {
+        return new AnalyzedVendingMachine(vendingMachine, analytics, machine);
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        vendingMachine.insertCoin(coin);
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        return offered(vendingMachine.selectProduct(productId));
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        List<Try<Purchase>> purchases = vendingMachine.purchase(order);
+        purchases.forEach(this::offered);
+
+        return purchases;
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        return vendingMachine.cancel();
+    }
+
+    @Override
+    public boolean isExactChangeOnly() {
+        return vendingMachine.isExactChangeOnly();
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        return offered(((Seller) vendingMachine).sell(productId, credit));
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        List<Try<Purchase>> purchases = ((Seller) vendingMachine).sellAll(productIds, credit);
+        purchases.forEach(this::offered);
+
+        return purchases;
+    }
+
+    @Override
+    public Slots slots() {
+        return inventory().slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return inventory().units(slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        inventory().setUnits(slot, units);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        inventory().addUnits(slot, delta);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return inventory().cash(coin);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        inventory().setCash(coin, count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        inventory().addCash(coin, delta);
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return inventory().initialCash(coin);
+    }
+
+    @Override
+    public List<Coin> credit() {
+        return inventory().credit();
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        inventory().setCredit(credit);
+    }
+
+    @Override
+    public void reset() {
+        ((Resetable) vendingMachine).reset();
+    }
+
+    private Try<Purchase> offered(Try<Purchase> purchase) {
+        if (purchase.isSuccess()) {
+            Product product = purchase.getOrThrowRuntimeException().getProduct();
+            analytics.offer(machine, product.getId(), product.getPriceInCents(), remaining(product.getId()));
+        }
+
+        return purchase;
+    }
+
+    private int remaining(Integer productId) {
+        if (vendingMachine instanceof Inventory) {
+            int slot = slots().slotOf(productId);
+
+            return slot != Slots.NONE ? units(slot) : -1;
+        }
+
+        return -1;
+    }
+
+    private Inventory inventory() {
+        return (Inventory) vendingMachine;
+    }
+
+}
@@ -0,0 +1,119 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+
+import java.util.List;
+
+/**
+ * Which change amounts a cash is able to pay exactly, up to {@link #MAX_CHANGE} cents, kept as a
+ * bitset of amounts of {@link #UNIT} cents so that telling whether some change is payable is a
+ * single bit test instead of running a solver.
+ * <p>
+ * Paying any of those amounts never takes more than so many coins of each denomination, so the
+ * counts are capped at that number: the bitset only needs to be recomputed when a capped count
+ * changes, which does not happen while the cash has plenty of every coin. Recomputing it is a few
+ * shifts per coin anyway.
+ * <p>
+ * It is not thread-safe, as the cash it follows.
+ */
+final class ChangeAvailability {
+
+    private static final Coin[] COINS = Coin.values();
+
+    static final long UNIT = Coin.unitInCents();
+
+    /**
+     * The highest change that paying with a single coin may need
+     */
+    static final long MAX_CHANGE = COINS[COINS.length - 1].cents() - UNIT;
+
+    private static final int AMOUNTS = (int) (MAX_CHANGE / UNIT);
+    private static final long EVERY_AMOUNT = AMOUNTS == Long.SIZE - 1 ? -1L : (1L << (AMOUNTS + 1)) - 1;
+
+    private final long[] capped;
+    private final long[] withCredit;
+    private long payable;
+
+    private ChangeAvailability(CoinCounts cash) {
+        this.capped = new long[COINS.length];
+        this.withCredit = new long[COINS.length];
+        for (Coin coin : COINS) {
+            capped[coin.ordinal()] = cap(coin, cash.count(coin));
+        }
+        this.payable = payable(capped);
+    }
+
+    static ChangeAvailability of(CoinCounts cash) {
+        return new ChangeAvailability(cash);
+    }
+
+    /**
+     * Follows the new count of the given coin in the cash
+     */
+    void update(Coin coin, long count) {
+        long newCapped = cap(coin, count);
+        if (capped[coin.ordinal()] != newCapped) {
+            capped[coin.ordinal()] = newCapped;
+            payable = payable(capped);
+        }
+    }
+
+    /**
+     * @return whether every change up to {@link #MAX_CHANGE} cents can be paid, otherwise consumers
+     * had better pay with the exact amount
+     */
+    boolean payableEveryAmount() {
+        return payable == EVERY_AMOUNT;
+    }
+
+    /**
+     * Tells whether the given change can be paid exactly from the cash plus the given credit. Changes
+     * above {@link #MAX_CHANGE} cents are not followed, so they are said to be payable for a solver
+     * to find out. The credit is added into a scratch copy of the capped counts, which is reused.
+     */
+    boolean payable(long change, List<Coin> credit) {
+        if (change <= 0) {
+            return true;
+        } else if (change % UNIT != 0) {
+            return false;
+        } else if (change > MAX_CHANGE) {
+            return true;
+        }
+
+        long amounts = payable;
+        if (!credit.isEmpty()) {
+            System.arraycopy(capped, 0, withCredit, 0, capped.length);
+            for (int i = 0; i < credit.size(); i++) {
+                Coin coin = credit.get(i);
+                withCredit[coin.ordinal()] = cap(coin, withCredit[coin.ordinal()] + 1);
+            }
+            amounts = payable(withCredit);
+        }
+
+        return (amounts & (1L << (change / UNIT))) != 0;
+    }
+
+    private static long cap(Coin coin, long count) {
+        return Math.min(count, MAX_CHANGE / coin.cents());
+    }
+
+    /**
+     * Bounded subset sums: every coin shifts the amounts already payable as many times as coins
+     * of it there are
+     */
+    private static long payable(long[] counts) {
+        long payable = 1;
+        for (Coin coin : COINS) {
+            int value = (int) (coin.cents() / UNIT);
+            long shifted = payable;
+            for (long n = counts[coin.ordinal()]; n > 0; n--) {
+                shifted = (shifted << value) & EVERY_AMOUNT;
+                payable |= shifted;
+            }
+        }
+
+        return payable;
+    }
+
+}
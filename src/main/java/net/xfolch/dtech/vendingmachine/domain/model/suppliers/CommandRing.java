@@ -0,0 +1,228 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.Order;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Preallocated ring of commands that many threads publish and a single consumer thread applies,
+ * one after another, to vending machines that are not thread-safe, in the manner of the LMAX
+ * disruptor.
+ * <p>
+ * Every slot goes through the same states, which are told apart by its sequence alone:
+ * <ul>
+ *     <li>free for the producer that claims the sequence {@code s}, when it is {@code s}</li>
+ *     <li>published, when it is {@code s + 1}</li>
+ *     <li>applied, with the result in the slot, when it is {@code s + 2}</li>
+ *     <li>free again for the producer of the next lap, once its producer has read the result</li>
+ * </ul>
+ * So the slots carry both the commands and their results, and publishing a command allocates nothing.
+ * <p>
+ * An idle consumer thread parks longer and longer, and producers only wake it up when it is parked.
+ * Once the ring is stopped, the consumer applies the commands already published and ends.
+ */
+final class CommandRing {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+    private static final int SPINS = 64;
+    private static final int YIELDS = 128;
+    private static final long MIN_PARK_NANOS = 1_000;
+    private static final long MAX_IDLE_PARK_NANOS = 10_000_000;
+    private static final AtomicLong SHARDS = new AtomicLong();
+
+    enum Kind {
+        INSERT_COIN, SELECT_PRODUCT, PURCHASE, CANCEL, EXACT_CHANGE_ONLY, SELL, SELL_ALL, RESET, INVENTORY
+    }
+
+    private static final class Slot {
+        volatile long sequence;
+        Kind kind;
+        VendingMachine target;
+        Object argument;
+        List<Coin> credit;
+        Object result;
+        Throwable failure;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    private final Slot[] slots;
+    private final AtomicLong claimed;
+    private final Thread consumer;
+    private volatile boolean parked;
+    private volatile boolean stopped;
+
+    private CommandRing() {
+        this.slots = new Slot[SIZE];
+        this.claimed = new AtomicLong();
+
+        for (int i = 0; i < SIZE; i++) {
+            slots[i] = new Slot(i);
+        }
+
+        this.consumer = new Thread(this::consume, "command-ring-" + SHARDS.incrementAndGet());
+        this.consumer.setDaemon(true);
+    }
+
+    /**
+     * @return a new ring, whose daemon consumer thread is already waiting for commands
+     */
+    static CommandRing start() {
+        CommandRing ring = new CommandRing();
+
+        ring.consumer.start();
+
+        return ring;
+    }
+
+    /**
+     * Stops the consumer thread once it has applied the commands already published, after which
+     * publishing a command fails
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Publishes the given command and waits until the consumer thread has applied it
+     *
+     * @return the result of the command, or throws its failure
+     * @throws IllegalStateException if the ring is stopped
+     */
+    Object call(VendingMachine target, Kind kind, Object argument, List<Coin> credit) {
+        if (stopped) {
+            throw new IllegalStateException("The command ring is stopped");
+        }
+
+        long sequence = claimed.getAndIncrement();
+        Slot slot = slots[(int) sequence & MASK];
+
+        awaitSequence(slot, sequence);
+        slot.kind = kind;
+        slot.target = target;
+        slot.argument = argument;
+        slot.credit = credit;
+        slot.sequence = sequence + 1;
+        if (parked) {
+            LockSupport.unpark(consumer);
+        }
+
+        awaitSequence(slot, sequence + 2);
+        Object result = slot.result;
+        Throwable failure = slot.failure;
+        slot.target = null;
+        slot.argument = null;
+        slot.credit = null;
+        slot.result = null;
+        slot.failure = null;
+        slot.sequence = sequence + SIZE;
+
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+
+        return result;
+    }
+
+    /**
+     * Whatever a command throws is handed over to its producer, so that the consumer thread outlives it
+     */
+    private void consume() {
+        for (long sequence = 0; ; sequence++) {
+            Slot slot = slots[(int) sequence & MASK];
+
+            if (!awaitPublished(slot, sequence + 1)) {
+                return;
+            }
+            try {
+                slot.result = apply(slot.target, slot.kind, slot.argument, slot.credit);
+            } catch (Throwable t) {
+                slot.failure = t;
+            }
+            slot.sequence = sequence + 2;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object apply(VendingMachine target, Kind kind, Object argument, List<Coin> credit) {
+        switch (kind) {
+            case INSERT_COIN:
+                return target.insertCoin((Coin) argument);
+            case SELECT_PRODUCT:
+                return target.selectProduct((Integer) argument);
+            case PURCHASE:
+                return target.purchase((Order) argument);
+            case CANCEL:
+                return target.cancel();
+            case EXACT_CHANGE_ONLY:
+                return target.isExactChangeOnly();
+            case SELL:
+                return ((Seller) target).sell((Integer) argument, credit);
+            case SELL_ALL:
+                return ((Seller) target).sellAll((List<Integer>) argument, credit);
+            case RESET:
+                ((Resetable) target).reset();
+                return null;
+            case INVENTORY:
+                return ((Function<Inventory, Object>) argument).apply((Inventory) target);
+            default:
+                throw new IllegalArgumentException("Unknown command " + kind);
+        }
+    }
+
+    /**
+     * Spins first, as the wait is usually shorter than parking, then yields, and parks at last
+     */
+    private void awaitSequence(Slot slot, long sequence) {
+        for (int idle = 0; slot.sequence != sequence; idle++) {
+            if (idle >= SPINS + YIELDS) {
+                if (!consumer.isAlive() && slot.sequence != sequence) {
+                    throw new IllegalStateException("The command ring is stopped");
+                }
+                LockSupport.parkNanos(MIN_PARK_NANOS);
+            } else if (idle >= SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Waits as the producers do, but parks twice as long every time, up to a few milliseconds, telling
+     * the producers that it is parked so that they wake it up
+     *
+     * @return whether the command was published, or false if the ring was stopped meanwhile
+     */
+    private boolean awaitPublished(Slot slot, long sequence) {
+        long parkNanos = MIN_PARK_NANOS;
+        for (int idle = 0; slot.sequence != sequence; idle++) {
+            if (stopped) {
+                return slot.sequence == sequence;
+            } else if (idle >= SPINS + YIELDS) {
+                parked = true;
+                if (slot.sequence != sequence && !stopped) {
+                    LockSupport.parkNanos(this, parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, MAX_IDLE_PARK_NANOS);
+                }
+                parked = false;
+            } else if (idle >= SPINS) {
+                Thread.yield();
+            }
+        }
+
+        return true;
+    }
+
+}
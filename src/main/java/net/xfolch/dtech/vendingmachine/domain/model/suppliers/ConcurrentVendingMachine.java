@@ -0,0 +1,322 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe implementation of the vending machine, meant for kiosks with several doors where
+ * many consumers and the supplier act on the same machine at the same time.
+ * <p>
+ * The credit belongs to a session, so every door opens its own one through {@link #openSession()},
+ * and those coins are held apart from the cash until they pay for a product. The vending machine
+ * credit is the one of a single default session, which its own operations take turns on, so callers
+ * serving many consumers must use a session per consumer. Stock and cash are shared
+ * counters, one per slot and one per {@link Coin#ordinal()}, which are only updated by compare-and-set:
+ * <ul>
+ *     <li>a unit is taken</li>
+ *     <li>the change is figured out from a view of the cash plus the credit</li>
+ *     <li>the coins of the change that the credit does not cover are reserved from the cash, which
+ *     is retried from a fresh view whenever another purchase has taken them meanwhile</li>
+ *     <li>the credit that is not given back as change goes into the cash</li>
+ * </ul>
+ * If the change cannot be given back, the unit is given back to the stock.
+ * So a purchase either takes both the unit and its change or nothing at all, without any lock.
+ * <p>
+ * Resetting restores the original stock and cash, but leaves alone the credit of the consumers
+ * who are still in the middle of an operation, as it never was part of the cash.
+ */
+final class ConcurrentVendingMachine implements VendingMachine, Seller, Resetable, Orders.Stock {
+
+    private static final Coin[] COINS = Coin.values();
+
+    private final Slots slots;
+    private final AtomicIntegerArray units;
+    private final long[] initialCash;
+    private final AtomicLongArray cash;
+    private final CreditSession session;
+    private final CoinCalculator calculator;
+
+    private ConcurrentVendingMachine(Slots slots, long[] initialCash, CoinCalculator calculator) {
+        this.slots = slots;
+        this.units = new AtomicIntegerArray(slots.initialUnits());
+        this.initialCash = initialCash;
+        this.cash = new AtomicLongArray(initialCash);
+        this.session = CreditSession.newOne(this);
+        this.calculator = calculator;
+    }
+
+    static ConcurrentVendingMachine noCredit(Slots slots,
+                                             List<Coin> cash,
+                                             CoinCalculator calculator) {
+
+        return new ConcurrentVendingMachine(slots, counts(cash), calculator);
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        synchronized (session) {
+            session.insertCoin(coin);
+        }
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        synchronized (session) {
+            return session.selectProduct(productId);
+        }
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        synchronized (session) {
+            return session.purchase(order);
+        }
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        synchronized (session) {
+            return session.cancel();
+        }
+    }
+
+    /**
+     * The cash changes from many threads, so it is read as it is now instead of being followed
+     */
+    @Override
+    public boolean isExactChangeOnly() {
+        return !ChangeAvailability.of(this::cash).payableEveryAmount();
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        int slot = slots.slotOf(productId);
+
+        if (slot == Slots.NONE) {
+            return Try.failure(ProductNotExists.newOne(productId));
+        } else if (units.get(slot) <= 0) {
+            return Try.failure(ProductNotAvailable.newOne(productId));
+        } else if (calculator.sum(credit) < slots.priceInCents(slot)) {
+            return Try.failure(NotEnoughCredit.newOne(productId));
+        } else {
+            return makePurchase(slot, credit);
+        }
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        return Orders.sellAll(this, calculator, productIds, credit);
+    }
+
+    @Override
+    public void reset() {
+        for (int slot = 0; slot < units.length(); slot++) {
+            units.set(slot, slots.initialUnit(slot));
+        }
+        for (int i = 0; i < initialCash.length; i++) {
+            cash.set(i, initialCash[i]);
+        }
+    }
+
+    @Override
+    public Slots slots() {
+        return slots;
+    }
+
+    @Override
+    public int units(int slot) {
+        return units.get(slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        this.units.set(slot, units);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        units.addAndGet(slot, delta);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return cash.get(coin.ordinal());
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        cash.set(coin.ordinal(), count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        cash.addAndGet(coin.ordinal(), delta);
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return initialCash[coin.ordinal()];
+    }
+
+    /**
+     * It is the credit of the default session alone, since the one of explicit sessions is held by
+     * the consumers
+     */
+    @Override
+    public List<Coin> credit() {
+        synchronized (session) {
+            return new ArrayList<>(session.credit());
+        }
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        synchronized (session) {
+            session.setCredit(credit);
+        }
+    }
+
+    private Try<Purchase> makePurchase(int slot, List<Coin> credit) {
+        Product product = slots.product(slot);
+
+        if (!takeUnit(slot)) {
+            return Try.failure(ProductNotAvailable.newOne(product.getId()));
+        }
+
+        Optional<List<Coin>> change = giveChange(credit, calculator.remaining(credit, product.getPriceInCents()));
+
+        if (!change.isPresent()) {
+            giveUnit(slot);
+            return Try.failure(NotEnoughChange.newOne(product.getId()));
+        }
+
+        return Try.success(Purchase.builder()
+                .setProduct(product)
+                .setRemaining(change.get())
+                .build());
+    }
+
+    /**
+     * Reserves the change from the cash plus the credit, which is retried while other purchases take
+     * the coins meanwhile
+     */
+    @Override
+    public Optional<List<Coin>> giveChange(List<Coin> credit, long remaining) {
+        long[] escrow = counts(credit);
+
+        while (true) {
+            Optional<List<Coin>> change = calculator.changeIfPossible(availableCash(escrow), remaining);
+            if (!change.isPresent()) {
+                return change;
+            }
+
+            long[] fromCash = counts(change.get());
+            for (int i = 0; i < fromCash.length; i++) {
+                fromCash[i] = Math.max(0, fromCash[i] - escrow[i]);
+            }
+
+            if (reserve(fromCash)) {
+                keepCredit(escrow, change.get());
+                credit.clear();
+                return change;
+            }
+        }
+    }
+
+    /**
+     * The cash is read once, so that the calculator sees the same counts all along even if other
+     * threads change them meanwhile
+     */
+    private CoinCounts availableCash(long[] escrow) {
+        long[] available = new long[COINS.length];
+        for (int i = 0; i < COINS.length; i++) {
+            available[i] = cash.get(i) + escrow[i];
+        }
+
+        return CoinCounts.of(available);
+    }
+
+    /**
+     * Takes the given coins from the cash, all of them or none
+     */
+    private boolean reserve(long[] coins) {
+        for (int i = 0; i < coins.length; i++) {
+            if (!take(i, coins[i])) {
+                for (int j = 0; j < i; j++) {
+                    cash.addAndGet(j, coins[j]);
+                }
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean take(int coin, long amount) {
+        if (amount == 0) {
+            return true;
+        }
+
+        long current;
+        do {
+            current = cash.get(coin);
+            if (current < amount) {
+                return false;
+            }
+        } while (!cash.compareAndSet(coin, current, current - amount));
+
+        return true;
+    }
+
+    @Override
+    public boolean takeUnit(int slot) {
+        int current;
+        do {
+            current = units.get(slot);
+            if (current <= 0) {
+                return false;
+            }
+        } while (!units.compareAndSet(slot, current, current - 1));
+
+        return true;
+    }
+
+    @Override
+    public void giveUnit(int slot) {
+        units.incrementAndGet(slot);
+    }
+
+    /**
+     * The credit coins that are not given back as change go into the cash
+     */
+    private void keepCredit(long[] escrow, List<Coin> change) {
+        long[] given = counts(change);
+        for (int i = 0; i < escrow.length; i++) {
+            long kept = escrow[i] - given[i];
+            if (kept > 0) {
+                cash.addAndGet(i, kept);
+            }
+        }
+    }
+
+    private static long[] counts(List<Coin> coins) {
+        long[] counts = new long[COINS.length];
+        for (Coin coin : coins) {
+            counts[coin.ordinal()]++;
+        }
+
+        return counts;
+    }
+
+}
@@ -0,0 +1,67 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.Order;
+import net.xfolch.dtech.vendingmachine.domain.model.Purchase;
+import net.xfolch.dtech.vendingmachine.domain.model.Session;
+import net.xfolch.dtech.vendingmachine.domain.model.Try;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Session that holds its credit and relies on a seller for the rest.
+ * <p>
+ * It is not thread-safe by itself: a session is meant to be driven by one consumer at a time
+ */
+final class CreditSession implements Session {
+
+    private final Seller seller;
+    private final List<Coin> credit;
+
+    private CreditSession(Seller seller) {
+        this.seller = seller;
+        this.credit = new ArrayList<>();
+    }
+
+    static CreditSession newOne(Seller seller) {
+        return new CreditSession(seller);
+    }
+
+    @Override
+    public Session insertCoin(Coin coin) {
+        credit.add(coin);
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        return seller.sell(productId, credit);
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        credit.addAll(order.getCoins());
+        return seller.sellAll(order.getProductIds(), credit);
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        List<Coin> refund = unmodifiableList(new ArrayList<>(credit));
+        credit.clear();
+
+        return refund;
+    }
+
+    List<Coin> credit() {
+        return unmodifiableList(credit);
+    }
+
+    void setCredit(List<Coin> credit) {
+        this.credit.clear();
+        this.credit.addAll(credit);
+    }
+
+}
@@ -0,0 +1,127 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Point-in-time snapshot of the state of many vending machines in a single file, which is laid
+ * out as a magic number, a version, the number of vending machines and then the state of every one
+ * of them, as {@link InventoryCodec} lays it out.
+ * <p>
+ * It is written through a small buffer that is reused for all the vending machines, and read in
+ * place from the file mapped into memory, so neither way copies the whole snapshot. Vending
+ * machines are restored into the same order and with the same products that they had, without
+ * building them again.
+ * <p>
+ * Every vending machine of the suppliers is supported, decorated or not, as long as it is an
+ * {@link Inventory}. The credit is the one of the vending machine itself, so the one of the
+ * sessions opened on it is left out, such as the sessions of the doors of a concurrent vending
+ * machine, which only has the credit of its default session saved and restored.
+ */
+final class FleetSnapshot {
+
+    private static final int MAGIC = 0x564d534e;
+    private static final byte VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private FleetSnapshot() {
+    }
+
+    /**
+     * The snapshot is written apart and then moved over the given file, so that a snapshot that
+     * was being written when the process died never replaces the previous one
+     */
+    static void write(List<VendingMachine> vendingMachines, Path file) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.putInt(MAGIC).put(VERSION);
+            VarInts.put(buffer, vendingMachines.size());
+
+            for (VendingMachine vendingMachine : vendingMachines) {
+                Inventory inventory = inventoryOf(vendingMachine);
+                List<Coin> credit = inventory.credit();
+
+                int size = InventoryCodec.maxSize(inventory, credit);
+                if (buffer.remaining() < size) {
+                    drain(buffer, channel);
+                    if (buffer.capacity() < size) {
+                        buffer = ByteBuffer.allocateDirect(size);
+                    }
+                }
+                InventoryCodec.write(buffer, inventory, credit);
+            }
+            drain(buffer, channel);
+
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(tmp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void read(List<VendingMachine> vendingMachines, Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (buffer.remaining() < Integer.BYTES + 1 || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+            throw new IllegalArgumentException(file + " is not a snapshot of vending machines");
+        }
+
+        int size = VarInts.getInt(buffer);
+        if (size != vendingMachines.size()) {
+            throw new IllegalArgumentException(file + " has " + size + " vending machines, but were given "
+                    + vendingMachines.size());
+        }
+
+        List<Coin> credit = new ArrayList<>();
+        for (VendingMachine vendingMachine : vendingMachines) {
+            Inventory inventory = inventoryOf(vendingMachine);
+
+            InventoryCodec.read(buffer, inventory, credit);
+            inventory.setCredit(credit);
+            credit.clear();
+        }
+    }
+
+    private static Inventory inventoryOf(VendingMachine vendingMachine) {
+        if (vendingMachine instanceof Inventory) {
+            return (Inventory) vendingMachine;
+        }
+
+        throw new IllegalArgumentException("The state of " + vendingMachine + " cannot be snapshot");
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,115 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * State of a whole fleet of vending machines that share the same products, laid out in flat
+ * primitive arrays addressed by machine index: the units of every slot and the count of every
+ * coin, machine after machine.
+ * <p>
+ * The catalog, the calculator and the original stock and cash are held once for the whole fleet,
+ * so that a vending machine costs its counters plus a {@link FleetVendingMachine} view.
+ * <p>
+ * As the views over it, it is not thread-safe.
+ */
+final class FleetStore {
+
+    private static final Coin[] COINS = Coin.values();
+
+    private final Slots slots;
+    private final CoinCalculator calculator;
+    private final int[] initialCash;
+    private final int[] units;
+    private final int[] cash;
+
+    private FleetStore(Slots slots, List<Coin> cash, CoinCalculator calculator, int machines) {
+        this.slots = slots;
+        this.calculator = calculator;
+        this.initialCash = new int[COINS.length];
+        cash.forEach(coin -> initialCash[coin.ordinal()]++);
+        this.units = new int[machines * slots.size()];
+        this.cash = new int[machines * COINS.length];
+
+        for (int machine = 0; machine < machines; machine++) {
+            reset(machine);
+        }
+    }
+
+    /**
+     * @return the given number of vending machines, all of them with the given products and cash
+     */
+    static List<VendingMachine> fleet(Slots slots,
+                                      List<Coin> cash,
+                                      CoinCalculator calculator,
+                                      int machines) {
+
+        FleetStore store = new FleetStore(slots, cash, calculator, machines);
+
+        List<VendingMachine> vendingMachines = new ArrayList<>(machines);
+        for (int machine = 0; machine < machines; machine++) {
+            vendingMachines.add(FleetVendingMachine.newOne(store, machine));
+        }
+
+        return Collections.unmodifiableList(vendingMachines);
+    }
+
+    /**
+     * @return a fleet of only one vending machine
+     */
+    static VendingMachine noCredit(Slots slots, List<Coin> cash, CoinCalculator calculator) {
+        return FleetVendingMachine.newOne(new FleetStore(slots, cash, calculator, 1), 0);
+    }
+
+    Slots slots() {
+        return slots;
+    }
+
+    CoinCalculator calculator() {
+        return calculator;
+    }
+
+    int units(int machine, int slot) {
+        return units[machine * slots.size() + slot];
+    }
+
+    void setUnits(int machine, int slot, int count) {
+        units[machine * slots.size() + slot] = count;
+    }
+
+    void addUnits(int machine, int slot, int delta) {
+        units[machine * slots.size() + slot] += delta;
+    }
+
+    long cash(int machine, Coin coin) {
+        return cash[machine * COINS.length + coin.ordinal()];
+    }
+
+    void setCash(int machine, Coin coin, long count) {
+        cash[machine * COINS.length + coin.ordinal()] = Math.toIntExact(count);
+    }
+
+    long initialCash(Coin coin) {
+        return initialCash[coin.ordinal()];
+    }
+
+    void addCash(int machine, Coin coin, int delta) {
+        cash[machine * COINS.length + coin.ordinal()] += delta;
+    }
+
+    /**
+     * Restores the original stock and cash of the given vending machine
+     */
+    void reset(int machine) {
+        for (int slot = 0; slot < slots.size(); slot++) {
+            setUnits(machine, slot, slots.initialUnit(slot));
+        }
+        System.arraycopy(initialCash, 0, cash, machine * COINS.length, COINS.length);
+    }
+
+}
@@ -0,0 +1,217 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Vending machine that is a view over its counters in a {@link FleetStore}, so that it only holds
+ * its index and, while there is any, its own credit.
+ * <p>
+ * It sells in the same way as {@link InMemoryVendingMachine}, and resetting it restores its
+ * original stock and cash in place.
+ */
+final class FleetVendingMachine implements VendingMachine, Seller, Resetable, Orders.Stock {
+
+    private final FleetStore store;
+    private final int machine;
+    private List<Coin> credit;
+
+    private FleetVendingMachine(FleetStore store, int machine) {
+        this.store = store;
+        this.machine = machine;
+    }
+
+    static FleetVendingMachine newOne(FleetStore store, int machine) {
+        return new FleetVendingMachine(store, machine);
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        ownCredit().add(coin);
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        return sell(productId, ownCredit());
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        ownCredit().addAll(order.getCoins());
+        return sellAll(order.getProductIds(), credit);
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        List<Coin> refund = credit != null ? Collections.unmodifiableList(credit) : Collections.emptyList();
+        credit = null;
+
+        return refund;
+    }
+
+    /**
+     * Figured out from the counts as they are now, so that the fleet does not hold it for every vending machine
+     */
+    @Override
+    public boolean isExactChangeOnly() {
+        return !ChangeAvailability.of(this::cash).payableEveryAmount();
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        Slots slots = store.slots();
+        int slot = slots.slotOf(productId);
+
+        if (slot == Slots.NONE) {
+            return Try.failure(ProductNotExists.newOne(productId));
+        } else if (!hasUnits(slot)) {
+            return Try.failure(ProductNotAvailable.newOne(productId));
+        } else if (store.calculator().sum(credit) < slots.priceInCents(slot)) {
+            return Try.failure(NotEnoughCredit.newOne(productId));
+        } else {
+            return makePurchase(slot, credit);
+        }
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        return Orders.sellAll(this, store.calculator(), productIds, credit);
+    }
+
+    @Override
+    public void reset() {
+        store.reset(machine);
+        credit = null;
+    }
+
+    @Override
+    public Slots slots() {
+        return store.slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return store.units(machine, slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        store.setUnits(machine, slot, units);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        store.addUnits(machine, slot, delta);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return store.cash(machine, coin);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        store.setCash(machine, coin, count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        store.addCash(machine, coin, Math.toIntExact(delta));
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return store.initialCash(coin);
+    }
+
+    @Override
+    public List<Coin> credit() {
+        return credit != null ? Collections.unmodifiableList(credit) : Collections.emptyList();
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        this.credit = credit.isEmpty() ? null : new ArrayList<>(credit);
+    }
+
+    /**
+     * Units are only taken once they are known to be there, as every vending machine of the fleet
+     * is used by one consumer at a time
+     */
+    @Override
+    public boolean takeUnit(int slot) {
+        addUnits(slot, -1);
+        return true;
+    }
+
+    @Override
+    public void giveUnit(int slot) {
+        addUnits(slot, 1);
+    }
+
+    @Override
+    public Optional<List<Coin>> giveChange(List<Coin> credit, long change) {
+        Optional<List<Coin>> remaining = store.calculator().changeIfPossible(Orders.availableCash(this, credit), change);
+        if (remaining.isPresent()) {
+            pay(credit, remaining.get());
+        }
+
+        return remaining;
+    }
+
+    /**
+     * The credit is only allocated while there is any
+     */
+    private List<Coin> ownCredit() {
+        if (credit == null) {
+            credit = new ArrayList<>(2);
+        }
+
+        return credit;
+    }
+
+    private boolean hasUnits(int slot) {
+        return units(slot) > 0;
+    }
+
+    private Try<Purchase> makePurchase(int slot, List<Coin> credit) {
+        Product product = store.slots().product(slot);
+        Optional<List<Coin>> change = giveChange(credit, store.calculator().remaining(credit, product.getPriceInCents()));
+
+        if (!change.isPresent()) {
+            return Try.failure(NotEnoughChange.newOne(product.getId()));
+        }
+
+        takeUnit(slot);
+
+        return Try.success(Purchase.builder()
+                .setProduct(product)
+                .setRemaining(change.get())
+                .build());
+    }
+
+    private void pay(List<Coin> credit, List<Coin> change) {
+        for (Coin coin : credit) {
+            store.addCash(machine, coin, 1);
+        }
+        credit.clear();
+        for (Coin coin : change) {
+            store.addCash(machine, coin, -1);
+        }
+
+        if (credit == this.credit) {
+            this.credit = null;
+        }
+    }
+
+}
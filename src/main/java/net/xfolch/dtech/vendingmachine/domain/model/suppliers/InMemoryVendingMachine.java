@@ -2,119 +2,276 @@ package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
 
 import net.xfolch.dtech.vendingmachine.domain.model.*;
 
-import java.math.BigDecimal;
 import java.util.*;
 
-import static java.util.Collections.emptyList;
-import static java.util.Collections.nCopies;
-import static java.util.Collections.unmodifiableList;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.*;
 
 /**
  * Implementation of the vending machine that maintains the state in memory.
  * <p>
+ * The credit is held by sessions, being the vending machine credit the one of its own session.
+ * <p>
  * Each action mutates the state, which means that this approach is not thread-safe
  * but does not matter in this domain
  * <p>
+ * It keeps track of the slots and coins that change since it was built or reset, so that resetting
+ * it only restores those ones instead of building it again.
+ * <p>
  * Created by xfolch on 7/8/16.
  */
-final class InMemoryVendingMachine implements VendingMachine {
+final class InMemoryVendingMachine implements VendingMachine, Seller, Resetable, Orders.Stock {
+
+    private static final Coin[] COINS = Coin.values();
 
-    private final Set<ProductLine> products;
-    private final List<Coin> credit;
+    private final Slots slots;
+    private final int[] units;
+    private final CreditSession session;
     private final Map<Coin, Long> cash;
+    private final long[] initialCash;
     private final CoinCalculator calculator;
+    private final ChangeAvailability availability;
+    private final long[] dirtySlots;
+    private int dirtyCoins;
 
-    private InMemoryVendingMachine(Set<ProductLine> products,
-                                   List<Coin> credit,
+    private InMemoryVendingMachine(Slots slots,
                                    List<Coin> cash,
                                    CoinCalculator calculator) {
 
-        this.products = new HashSet<>(products);
-        this.credit = new ArrayList<>(credit);
+        this.slots = slots;
+        this.units = slots.initialUnits();
+        this.session = CreditSession.newOne(this);
         this.cash = cash.stream().collect(groupingBy(identity(), counting()));
+        this.initialCash = new long[COINS.length];
+        this.cash.forEach((coin, count) -> initialCash[coin.ordinal()] = count);
         this.calculator = calculator;
+        this.availability = ChangeAvailability.of(this::cash);
+        this.dirtySlots = new long[(slots.size() + 63) >>> 6];
     }
 
-    static InMemoryVendingMachine noCredit(Set<ProductLine> products,
+    static InMemoryVendingMachine noCredit(Slots slots,
                                            List<Coin> cash,
                                            CoinCalculator calculator) {
 
-        return new InMemoryVendingMachine(products, emptyList(), cash, calculator);
+        return new InMemoryVendingMachine(slots, cash, calculator);
     }
 
     @Override
     public VendingMachine insertCoin(Coin coin) {
-        credit.add(coin);
-        incrementCash(coin);
-
+        session.insertCoin(coin);
         return this;
     }
 
     @Override
     public Try<Purchase> selectProduct(Integer productId) {
-        return Try.that(() -> find(productId))
-                .filter(Optional::isPresent, () -> ProductNotExists.newOne(productId))
-                .map(Optional::get)
-                .filter(ProductLine::hasUnits, () -> ProductNotAvailable.newOne(productId))
-                .filter(this::hasEnoughCredit, () -> NotEnoughCredit.newOne(productId))
-                .map(this::makePurchase);
+        return session.selectProduct(productId);
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        return session.purchase(order);
     }
 
     @Override
     public List<Coin> cancel() {
-        List<Coin> refund = unmodifiableList(new ArrayList<>(credit));
-        credit.clear();
+        return session.cancel();
+    }
 
-        decrementCash(refund);
-        return refund;
+    @Override
+    public boolean isExactChangeOnly() {
+        return !availability.payableEveryAmount();
     }
 
-    private Optional<ProductLine> find(Integer productId) {
-        return products.stream()
-                .filter(line -> line.getProduct().getId().equals(productId))
-                .findFirst();
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
     }
 
-    private boolean hasEnoughCredit(ProductLine line) {
-        return calculator.sum(credit).compareTo(line.getProduct().getPrice()) >= 0;
+    /**
+     * Checks are made one after another instead of chaining tries, so that selections which are
+     * going to fail do not allocate anything but the failure
+     */
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        int slot = slots.slotOf(productId);
+
+        if (slot == Slots.NONE) {
+            return Try.failure(ProductNotExists.newOne(productId));
+        } else if (!hasUnits(slot)) {
+            return Try.failure(ProductNotAvailable.newOne(productId));
+        } else if (!hasEnoughCredit(slot, credit)) {
+            return Try.failure(NotEnoughCredit.newOne(productId));
+        } else {
+            return makePurchase(slot, credit);
+        }
     }
 
-    private Purchase makePurchase(ProductLine line) {
-        BigDecimal change = consumesUnit(line);
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        return Orders.sellAll(this, calculator, productIds, credit);
+    }
+
+    /**
+     * Restores the units of the dirty slots and the count of the dirty coins, and clears the
+     * credit of the vending machine itself
+     */
+    @Override
+    public void reset() {
+        for (int word = 0; word < dirtySlots.length; word++) {
+            for (long dirty = dirtySlots[word]; dirty != 0; dirty &= dirty - 1) {
+                int slot = (word << 6) + Long.numberOfTrailingZeros(dirty);
+                units[slot] = slots.initialUnit(slot);
+            }
+            dirtySlots[word] = 0;
+        }
 
-        List<Coin> remaining = calculator.change(availableCash(), change);
-        decrementCash(remaining);
+        for (int dirty = dirtyCoins; dirty != 0; dirty &= dirty - 1) {
+            Coin coin = COINS[Integer.numberOfTrailingZeros(dirty)];
+            cash.put(coin, initialCash[coin.ordinal()]);
+            availability.update(coin, initialCash[coin.ordinal()]);
+        }
+        dirtyCoins = 0;
 
-        return Purchase.builder()
-                .setProduct(line.getProduct())
-                .setRemaining(remaining)
-                .build();
+        session.cancel();
     }
 
-    private List<Coin> availableCash() {
-        return cash.entrySet().stream()
-                .flatMap(entry -> nCopies(entry.getValue().intValue(), entry.getKey()).stream())
-                .collect(toList());
+    @Override
+    public Slots slots() {
+        return slots;
     }
 
-    private BigDecimal consumesUnit(ProductLine line) {
-        BigDecimal change = calculator.remaining(credit, line.getProduct().getPrice());
+    @Override
+    public int units(int slot) {
+        return units[slot];
+    }
 
-        decrementUnit(line);
-        credit.clear();
+    @Override
+    public void setUnits(int slot, int units) {
+        this.units[slot] = units;
+        markDirty(slot);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        units[slot] += delta;
+        markDirty(slot);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return cash.getOrDefault(coin, 0L);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        cash.put(coin, count);
+        cashChanged(coin);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        cash.merge(coin, delta, Long::sum);
+        cashChanged(coin);
+    }
 
-        return change;
+    @Override
+    public long initialCash(Coin coin) {
+        return initialCash[coin.ordinal()];
+    }
+
+    @Override
+    public List<Coin> credit() {
+        return session.credit();
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        session.setCredit(credit);
+    }
+
+    /**
+     * Units are only taken once they are known to be there, as nothing else changes them meanwhile
+     */
+    @Override
+    public boolean takeUnit(int slot) {
+        units[slot]--;
+        markDirty(slot);
+        return true;
+    }
+
+    @Override
+    public void giveUnit(int slot) {
+        units[slot]++;
+    }
+
+    @Override
+    public Optional<List<Coin>> giveChange(List<Coin> credit, long change) {
+        if (!isPayable(change, credit)) {
+            return Optional.empty();
+        }
+
+        Optional<List<Coin>> remaining = calculator.changeIfPossible(Orders.availableCash(this, credit), change);
+        if (remaining.isPresent()) {
+            pay(credit, remaining.get());
+        }
+
+        return remaining;
+    }
+
+    private boolean hasUnits(int slot) {
+        return units[slot] > 0;
+    }
+
+    private boolean hasEnoughCredit(int slot, List<Coin> credit) {
+        return calculator.sum(credit) >= slots.priceInCents(slot);
+    }
+
+    /**
+     * The change is figured out before taking the unit, so that nothing is mutated if it cannot be given back
+     */
+    private Try<Purchase> makePurchase(int slot, List<Coin> credit) {
+        Product product = slots.product(slot);
+        Optional<List<Coin>> change = giveChange(credit, calculator.remaining(credit, product.getPriceInCents()));
+
+        if (!change.isPresent()) {
+            return Try.failure(NotEnoughChange.newOne(product.getId()));
+        }
+
+        takeUnit(slot);
+
+        return Try.success(Purchase.builder()
+                .setProduct(product)
+                .setRemaining(change.get())
+                .build());
+    }
+
+    /**
+     * Admission check of the calculators that refuse to give back less than the change, which
+     * rejects before calculating anything the change that the cash surely cannot pay
+     */
+    private boolean isPayable(long change, List<Coin> credit) {
+        return !calculator.isExact() || availability.payable(change, credit);
+    }
+
+
+    private void markDirty(int slot) {
+        dirtySlots[slot >>> 6] |= 1L << slot;
+    }
+
+    private void pay(List<Coin> credit, List<Coin> change) {
+        credit.forEach(this::incrementCash);
+        credit.clear();
+        decrementCash(change);
     }
 
-    private void decrementUnit(ProductLine line) {
-        products.remove(line);
-        products.add(ProductLine.newOne(line.getProduct(), line.getNumUnits() - 1));
+    private void cashChanged(Coin coin) {
+        dirtyCoins |= 1 << coin.ordinal();
+        availability.update(coin, cash(coin));
     }
 
     private void incrementCash(Coin coin) {
         cash.compute(coin, (c, acc) -> acc != null ? acc + 1 : 1);
+        cashChanged(coin);
     }
 
     private void decrementCash(List<Coin> coins) {
@@ -123,6 +280,7 @@ final class InMemoryVendingMachine implements VendingMachine {
 
     private void decrementCash(Coin coin) {
         cash.computeIfPresent(coin, (c, acc) -> acc - 1);
+        cashChanged(coin);
     }
 
 }
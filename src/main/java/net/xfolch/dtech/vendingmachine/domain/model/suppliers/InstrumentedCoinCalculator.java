@@ -0,0 +1,84 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Decorates a coin calculator so that it records how long the change takes to be figured out,
+ * and how often it comes up short
+ */
+final class InstrumentedCoinCalculator implements CoinCalculator {
+
+    private final CoinCalculator calculator;
+    private final MetricsImpl metrics;
+
+    private InstrumentedCoinCalculator(CoinCalculator calculator, MetricsImpl metrics) {
+        this.calculator = calculator;
+        this.metrics = metrics;
+    }
+
+    static InstrumentedCoinCalculator newOne(CoinCalculator calculator, MetricsImpl metrics) {
+        return new InstrumentedCoinCalculator(calculator, metrics);
+    }
+
+    @Override
+    public long sum(Collection<Coin> coins) {
+        return calculator.sum(coins);
+    }
+
+    @Override
+    public long remaining(List<Coin> credit, long price) {
+        return calculator.remaining(credit, price);
+    }
+
+    @Override
+    public boolean isExact() {
+        return calculator.isExact();
+    }
+
+    @Override
+    public List<Coin> change(List<Coin> cash, long remaining) {
+        long start = System.nanoTime();
+        List<Coin> change = calculator.change(cash, remaining);
+        metrics.record(Metrics.Operation.CHANGE, start);
+
+        if (calculator.sum(change) < remaining) {
+            metrics.recordShortChange();
+        }
+
+        return change;
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(List<Coin> cash, long remaining) {
+        long start = System.nanoTime();
+        Optional<List<Coin>> change = calculator.changeIfPossible(cash, remaining);
+        metrics.record(Metrics.Operation.CHANGE, start);
+
+        if (!change.isPresent() || calculator.sum(change.get()) < remaining) {
+            metrics.recordShortChange();
+        }
+
+        return change;
+    }
+
+    @Override
+    public Optional<List<Coin>> changeIfPossible(CoinCounts cash, long remaining) {
+        long start = System.nanoTime();
+        Optional<List<Coin>> change = calculator.changeIfPossible(cash, remaining);
+        metrics.record(Metrics.Operation.CHANGE, start);
+
+        if (!change.isPresent() || calculator.sum(change.get()) < remaining) {
+            metrics.recordShortChange();
+        }
+
+        return change;
+    }
+
+}
@@ -0,0 +1,164 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics.Operation;
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics.Outcome;
+
+import java.util.List;
+
+/**
+ * Decorates a vending machine so that it records the latency of every operation and the outcome
+ * of every product selection, including the ones of its sessions
+ */
+final class InstrumentedVendingMachine implements VendingMachine, Seller, Resetable, Inventory {
+
+    private final VendingMachine vendingMachine;
+    private final MetricsImpl metrics;
+
+    private InstrumentedVendingMachine(VendingMachine vendingMachine, MetricsImpl metrics) {
+        this.vendingMachine = vendingMachine;
+        this.metrics = metrics;
+    }
+
+    static InstrumentedVendingMachine newOne(VendingMachine vendingMachine, MetricsImpl metrics) {
+        return new InstrumentedVendingMachine(vendingMachine, metrics);
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        long start = System.nanoTime();
+        vendingMachine.insertCoin(coin);
+        metrics.record(Operation.INSERT_COIN, start);
+
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        long start = System.nanoTime();
+        Try<Purchase> purchase = vendingMachine.selectProduct(productId);
+        metrics.record(Operation.SELECT_PRODUCT, start);
+
+        return recorded(purchase);
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        long start = System.nanoTime();
+        List<Try<Purchase>> purchases = vendingMachine.purchase(order);
+        metrics.record(Operation.PURCHASE, start);
+
+        purchases.forEach(this::recorded);
+        return purchases;
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        long start = System.nanoTime();
+        List<Coin> refund = vendingMachine.cancel();
+        metrics.record(Operation.CANCEL, start);
+
+        return refund;
+    }
+
+    @Override
+    public boolean isExactChangeOnly() {
+        return vendingMachine.isExactChangeOnly();
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        long start = System.nanoTime();
+        Try<Purchase> purchase = ((Seller) vendingMachine).sell(productId, credit);
+        metrics.record(Operation.SELECT_PRODUCT, start);
+
+        return recorded(purchase);
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        long start = System.nanoTime();
+        List<Try<Purchase>> purchases = ((Seller) vendingMachine).sellAll(productIds, credit);
+        metrics.record(Operation.PURCHASE, start);
+
+        purchases.forEach(this::recorded);
+        return purchases;
+    }
+
+    @Override
+    public Slots slots() {
+        return inventory().slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return inventory().units(slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        inventory().setUnits(slot, units);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        inventory().addUnits(slot, delta);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return inventory().cash(coin);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        inventory().setCash(coin, count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        inventory().addCash(coin, delta);
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return inventory().initialCash(coin);
+    }
+
+    @Override
+    public List<Coin> credit() {
+        return inventory().credit();
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        inventory().setCredit(credit);
+    }
+
+    @Override
+    public void reset() {
+        ((Resetable) vendingMachine).reset();
+    }
+
+    private Try<Purchase> recorded(Try<Purchase> purchase) {
+        if (purchase.isSuccess()) {
+            metrics.record(Outcome.SOLD);
+            return purchase;
+        } else {
+            return purchase.recoverWith(failure -> {
+                metrics.recordFailure(failure);
+                return purchase;
+            });
+        }
+    }
+
+    private Inventory inventory() {
+        return (Inventory) vendingMachine;
+    }
+
+}
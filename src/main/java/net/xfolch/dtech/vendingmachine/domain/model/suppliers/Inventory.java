@@ -0,0 +1,52 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+
+import java.util.List;
+
+/**
+ * Trait of the vending machines whose stock, cash and credit can be read and written slot by slot and
+ * coin by coin, so that the supplier domain is able to persist and restore them.
+ * <p>
+ * Notice that it is not public because this trait only belongs to the supplier domain
+ */
+interface Inventory {
+
+    Slots slots();
+
+    int units(int slot);
+
+    void setUnits(int slot, int units);
+
+    /**
+     * Adds the given units to the slot in a single step, so that thread-safe vending machines do not
+     * lose the units that they sell meanwhile
+     *
+     * @param delta units to be added, or taken if negative
+     */
+    void addUnits(int slot, int delta);
+
+    long cash(Coin coin);
+
+    void setCash(Coin coin, long count);
+
+    /**
+     * Adds the given count of the coin to the cash in a single step, as {@link #addUnits(int, int)} does
+     *
+     * @param delta coins to be added, or taken if negative
+     */
+    void addCash(Coin coin, long delta);
+
+    /**
+     * @return the count of the given coin that the vending machine was built with
+     */
+    long initialCash(Coin coin);
+
+    /**
+     * @return the credit of the vending machine itself, leaving aside the one of other sessions
+     */
+    List<Coin> credit();
+
+    void setCredit(List<Coin> credit);
+
+}
@@ -0,0 +1,79 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compact binary layout of the state of a vending machine, shared by its journal snapshots and by
+ * the snapshots of whole fleets:
+ * <ul>
+ *     <li>the number of slots whose product has an id, and then that id and the units of each of them</li>
+ *     <li>the count of every coin, in the order of {@link Coin#ordinal()}</li>
+ *     <li>the number of coins of the credit, and then their ordinals, one byte each</li>
+ * </ul>
+ * Numbers are varints, so a vending machine usually takes a few tens of bytes. Slots are identified
+ * by their product ids, and the ones of products that the vending machine does not have are skipped
+ * when it is read. The slots of products without an id cannot be told apart, and so they are left out
+ * altogether, as they cannot be sold either.
+ */
+final class InventoryCodec {
+
+    private static final Coin[] COINS = Coin.values();
+
+    private InventoryCodec() {
+    }
+
+    /**
+     * @return the most bytes that the state of the given vending machine may take
+     */
+    static int maxSize(Inventory inventory, List<Coin> credit) {
+        return (1 + 2 * inventory.slots().size() + COINS.length + 1) * VarInts.MAX_SIZE + credit.size();
+    }
+
+    static void write(ByteBuffer buffer, Inventory inventory, List<Coin> credit) {
+        Slots slots = inventory.slots();
+
+        int identified = 0;
+        for (int slot = 0; slot < slots.size(); slot++) {
+            if (slots.product(slot).getId() != null) {
+                identified++;
+            }
+        }
+
+        VarInts.put(buffer, identified);
+        for (int slot = 0; slot < slots.size(); slot++) {
+            Integer productId = slots.product(slot).getId();
+            if (productId != null) {
+                VarInts.putSigned(buffer, productId);
+                VarInts.put(buffer, inventory.units(slot));
+            }
+        }
+        for (Coin coin : COINS) {
+            VarInts.put(buffer, inventory.cash(coin));
+        }
+        VarInts.put(buffer, credit.size());
+        credit.forEach(coin -> buffer.put((byte) coin.ordinal()));
+    }
+
+    /**
+     * Sets the stock and cash of the given vending machine, and adds the credit to the given one
+     */
+    static void read(ByteBuffer buffer, Inventory inventory, List<Coin> credit) {
+        for (int i = VarInts.getInt(buffer); i > 0; i--) {
+            int slot = inventory.slots().slotOf(VarInts.getSigned(buffer));
+            int units = VarInts.getInt(buffer);
+            if (slot != Slots.NONE) {
+                inventory.setUnits(slot, units);
+            }
+        }
+        for (Coin coin : COINS) {
+            inventory.setCash(coin, VarInts.get(buffer));
+        }
+        for (int i = VarInts.getInt(buffer); i > 0; i--) {
+            credit.add(COINS[buffer.get()]);
+        }
+    }
+
+}
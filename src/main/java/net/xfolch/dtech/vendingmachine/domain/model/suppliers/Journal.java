@@ -0,0 +1,180 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Append-only file of records, which is memory-mapped so that appending a record is just
+ * copying it into memory.
+ * <p>
+ * Every record is laid out as a commit mark, its length and its payload. The commit mark is
+ * written last, so a record that was being appended when the process died is seen as the end
+ * of the journal.
+ * <p>
+ * Records are forced to the storage device in groups: a single background thread forces every
+ * journal with pending records every few milliseconds, so appending never waits for the device.
+ */
+final class Journal {
+
+    private static final byte COMMITTED = 1;
+    private static final int HEADER = 1 + Integer.BYTES;
+    private static final int SEGMENT = 1 << 20;
+    private static final long GROUP_COMMIT_MILLIS = 5;
+
+    private static final Queue<Journal> OPEN = new ConcurrentLinkedQueue<>();
+    private static final ScheduledExecutorService GROUP_COMMIT = groupCommit();
+
+    private final FileChannel channel;
+    private volatile MappedByteBuffer buffer;
+    private int position;
+    private volatile boolean pending;
+
+    private Journal(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = committedEnd(buffer);
+    }
+
+    /**
+     * Opens the journal of the given file, creating it if it does not exist. New records are
+     * appended after the last committed one.
+     */
+    static Journal open(Path file) {
+        try {
+            FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+            long size = Math.max(SEGMENT, roundUp(channel.size()));
+            Journal journal = new Journal(channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            OPEN.add(journal);
+
+            return journal;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Hands every committed record over to the given consumer, in the order they were appended
+     */
+    void replay(Consumer<ByteBuffer> consumer) {
+        ByteBuffer records = buffer.duplicate();
+        for (int at = 0; at < position; ) {
+            int length = records.getInt(at + 1);
+            records.limit(at + HEADER + length).position(at + HEADER);
+            consumer.accept(records.slice().asReadOnlyBuffer());
+            records.clear();
+            at += HEADER + length;
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of the given payload as a new record
+     */
+    synchronized void append(ByteBuffer payload) {
+        int length = payload.remaining();
+        ensureCapacity(HEADER + length + 1);
+
+        buffer.putInt(position + 1, length);
+        buffer.position(position + HEADER);
+        buffer.put(payload);
+        // clears whatever a torn record left where the next one starts, before committing this one
+        buffer.put(position + HEADER + length, (byte) 0);
+        buffer.put(position, COMMITTED);
+
+        position += HEADER + length;
+        pending = true;
+    }
+
+    /**
+     * Forces the appended records to the storage device, if there is any pending. They are still
+     * pending if forcing them fails, so that the next group commit tries again.
+     */
+    void force() {
+        MappedByteBuffer buffer = this.buffer;
+        if (pending && buffer != null) {
+            pending = false;
+            try {
+                buffer.force();
+            } catch (RuntimeException e) {
+                pending = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Forces the pending records and closes the file. The mapping is dropped as well, so that it is
+     * released as soon as it is collected, since it cannot be unmapped explicitly.
+     */
+    synchronized void close() {
+        OPEN.remove(this);
+        force();
+        buffer = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (position + length > buffer.capacity()) {
+            try {
+                buffer.force();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, roundUp(position + length + SEGMENT));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static int committedEnd(ByteBuffer buffer) {
+        int at = 0;
+        while (at + HEADER <= buffer.capacity() && buffer.get(at) == COMMITTED) {
+            at += HEADER + buffer.getInt(at + 1);
+        }
+
+        return at;
+    }
+
+    private static long roundUp(long size) {
+        return (size + SEGMENT - 1) / SEGMENT * SEGMENT;
+    }
+
+    private static ScheduledExecutorService groupCommit() {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(Journal::forceOpen, GROUP_COMMIT_MILLIS, GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+
+        return executor;
+    }
+
+    /**
+     * A journal that fails to be forced must not stop the others, nor the group commit itself, which
+     * would never run again if it threw
+     */
+    private static void forceOpen() {
+        for (Journal journal : OPEN) {
+            try {
+                journal.force();
+            } catch (RuntimeException e) {
+                // still pending, so it is forced again by the next group commit
+            }
+        }
+    }
+
+}
@@ -0,0 +1,523 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Decorates a vending machine so that every change of its state is recorded as events in a
+ * {@link Journal}, and such state is recovered when the vending machine is built again with the
+ * same name and directory.
+ * <p>
+ * Every operation appends a single record with its events, so an operation is recovered either
+ * whole or not at all:
+ * <ul>
+ *     <li>a coin inserted into, or the cancel of, the credit of the vending machine itself</li>
+ *     <li>the products sold, the credit spent on them and the change dispensed</li>
+ *     <li>a reset</li>
+ *     <li>the units, cash or credit that the supplier sets through the inventory</li>
+ * </ul>
+ * The credit of the sessions is not recorded, since it is held by session objects that do not
+ * outlive the process, but what they buy is.
+ * <p>
+ * Every so many operations the whole state is written as a snapshot and the journal starts over
+ * as a new generation, so that recovering only replays the operations made since the last
+ * snapshot. Recovering always ends with a fresh snapshot as well.
+ * <p>
+ * Its journal stays open, and forced in the background, until the vending machine is retired.
+ * <p>
+ * As the vending machine it decorates, it is not thread-safe.
+ */
+final class JournaledVendingMachine implements VendingMachine, Seller, Resetable, Inventory, Retirable {
+
+    private static final Coin[] COINS = Coin.values();
+    private static final int SNAPSHOT_EVERY = 10_000;
+    private static final Pattern NAME = Pattern.compile("[\\w-]+");
+
+    private static final byte COIN_INSERTED = 1;
+    private static final byte CANCELLED = 2;
+    private static final byte PRODUCT_SOLD = 3;
+    private static final byte CREDIT_SPENT = 4;
+    private static final byte CHANGE_DISPENSED = 5;
+    private static final byte RESET = 6;
+    private static final byte UNITS_SET = 7;
+    private static final byte CASH_SET = 8;
+    private static final byte CREDIT_SET = 9;
+
+    private final VendingMachine vendingMachine;
+    private final Path directory;
+    private final String name;
+    private final List<Coin> credit;
+
+    private Journal journal;
+    private long generation;
+    private int operations;
+    private ByteBuffer events;
+
+    private JournaledVendingMachine(VendingMachine vendingMachine, Path directory, String name) {
+        this.vendingMachine = vendingMachine;
+        this.directory = directory;
+        this.name = name;
+        this.credit = new ArrayList<>();
+        this.events = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * Recovers the state of the vending machine with the given name from the given directory, if
+     * there is any, onto the given vending machine, which must be a fresh one built as it was
+     * the first time.
+     */
+    static JournaledVendingMachine recover(VendingMachine vendingMachine, Path directory, String name) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Vending machine names are made of letters, digits, "
+                    + "underscores and hyphens, but was " + name);
+        }
+
+        JournaledVendingMachine journaled = new JournaledVendingMachine(vendingMachine, directory, name);
+        journaled.recover();
+
+        return journaled;
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        credit.add(coin);
+
+        events(2).put(COIN_INSERTED).put((byte) coin.ordinal());
+        append();
+
+        return this;
+    }
+
+    @Override
+    public Try<Purchase> selectProduct(Integer productId) {
+        return sell(productId, credit);
+    }
+
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        order.getCoins().forEach(this::insertCoin);
+
+        return sellAll(order.getProductIds(), credit);
+    }
+
+    @Override
+    public List<Coin> cancel() {
+        List<Coin> refund = new ArrayList<>(credit);
+        credit.clear();
+
+        events(1).put(CANCELLED);
+        append();
+
+        return refund;
+    }
+
+    @Override
+    public boolean isExactChangeOnly() {
+        return vendingMachine.isExactChangeOnly();
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        List<Coin> spent = new ArrayList<>(credit);
+        Try<Purchase> purchase = seller().sell(productId, credit);
+
+        if (purchase.isSuccess()) {
+            ByteBuffer events = journalSale(credit == this.credit, spent, 1,
+                    purchase.getOrThrowRuntimeException().getRemaining());
+            events.put(PRODUCT_SOLD);
+            VarInts.putSigned(events, productId);
+            append();
+        }
+
+        return purchase;
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        List<Coin> spent = new ArrayList<>(credit);
+        List<Try<Purchase>> purchases = seller().sellAll(productIds, credit);
+
+        List<Coin> change = new ArrayList<>();
+        int numSold = 0;
+        for (Try<Purchase> purchase : purchases) {
+            if (purchase.isSuccess()) {
+                change.addAll(purchase.getOrThrowRuntimeException().getRemaining());
+                numSold++;
+            }
+        }
+
+        if (numSold > 0) {
+            ByteBuffer events = journalSale(credit == this.credit, spent, numSold, change);
+            for (int i = 0; i < purchases.size(); i++) {
+                if (purchases.get(i).isSuccess()) {
+                    events.put(PRODUCT_SOLD);
+                    VarInts.putSigned(events, productIds.get(i));
+                }
+            }
+            append();
+        }
+
+        return purchases;
+    }
+
+    /**
+     * The credit of the vending machine itself is lost on reset, as the decorated one is built again
+     */
+    @Override
+    public void reset() {
+        resetable().reset();
+        credit.clear();
+
+        events(1).put(RESET);
+        append();
+    }
+
+    @Override
+    public Slots slots() {
+        return inventory().slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return inventory().units(slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        inventory().setUnits(slot, units);
+        unitsSet(slot, units);
+    }
+
+    /**
+     * The units that result are journaled, as recovering replays them over a fresh vending machine
+     */
+    @Override
+    public void addUnits(int slot, int delta) {
+        inventory().addUnits(slot, delta);
+        unitsSet(slot, inventory().units(slot));
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return inventory().cash(coin);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        inventory().setCash(coin, count);
+        cashSet(coin, count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        inventory().addCash(coin, delta);
+        cashSet(coin, inventory().cash(coin));
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return inventory().initialCash(coin);
+    }
+
+    /**
+     * The credit of the vending machine itself is held by this decorator, apart from the one of the
+     * decorated vending machine
+     */
+    @Override
+    public List<Coin> credit() {
+        return Collections.unmodifiableList(credit);
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        List<Coin> newCredit = new ArrayList<>(credit);
+        this.credit.clear();
+        this.credit.addAll(newCredit);
+
+        putCounts(events(1 + COINS.length * VarInts.MAX_SIZE).put(CREDIT_SET), newCredit);
+        append();
+    }
+
+    /**
+     * Closes the journal, whose records are all forced before. The state is recovered as usual by
+     * the next vending machine built with the same name.
+     */
+    @Override
+    public void retire() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * The units of products without an id are not journaled, as snapshots leave them out as well
+     */
+    private void unitsSet(int slot, int units) {
+        Integer productId = slots().product(slot).getId();
+        if (productId == null) {
+            return;
+        }
+
+        ByteBuffer events = events(1 + 2 * VarInts.MAX_SIZE).put(UNITS_SET);
+        VarInts.putSigned(events, productId);
+        VarInts.putSigned(events, units);
+        append();
+    }
+
+    private void cashSet(Coin coin, long count) {
+        ByteBuffer events = events(2 + VarInts.MAX_SIZE).put(CASH_SET).put((byte) coin.ordinal());
+        VarInts.put(events, count);
+        append();
+    }
+
+    /**
+     * Starts the events of a sale with the credit spent and the change dispensed, leaving room
+     * for the given number of products sold
+     */
+    private ByteBuffer journalSale(boolean own, List<Coin> spent, int numSold, List<Coin> change) {
+        ByteBuffer events = events(2 + 2 * (1 + COINS.length * VarInts.MAX_SIZE) + numSold * (1 + VarInts.MAX_SIZE));
+
+        events.put(CREDIT_SPENT).put((byte) (own ? 1 : 0));
+        putCounts(events, spent);
+        events.put(CHANGE_DISPENSED);
+        putCounts(events, change);
+
+        return events;
+    }
+
+    private ByteBuffer events(int capacity) {
+        if (events.capacity() < capacity) {
+            events = ByteBuffer.allocate(Integer.highestOneBit(capacity) << 1);
+        }
+        events.clear();
+
+        return events;
+    }
+
+    private void append() {
+        events.flip();
+        journal.append(events);
+
+        if (++operations >= SNAPSHOT_EVERY) {
+            snapshot();
+        }
+    }
+
+    /**
+     * As when a snapshot is read, the events of products that the vending machine does not have any
+     * more are skipped
+     */
+    private void replay(ByteBuffer events) {
+        while (events.hasRemaining()) {
+            switch (events.get()) {
+                case COIN_INSERTED:
+                    credit.add(COINS[events.get()]);
+                    break;
+                case CANCELLED:
+                    credit.clear();
+                    break;
+                case PRODUCT_SOLD:
+                    int slot = inventory().slots().slotOf(VarInts.getSigned(events));
+                    if (slot != Slots.NONE) {
+                        inventory().addUnits(slot, -1);
+                    }
+                    break;
+                case CREDIT_SPENT:
+                    if (events.get() == 1) {
+                        credit.clear();
+                    }
+                    for (Coin coin : COINS) {
+                        inventory().setCash(coin, inventory().cash(coin) + VarInts.get(events));
+                    }
+                    break;
+                case CHANGE_DISPENSED:
+                    for (Coin coin : COINS) {
+                        inventory().setCash(coin, inventory().cash(coin) - VarInts.get(events));
+                    }
+                    break;
+                case RESET:
+                    resetable().reset();
+                    credit.clear();
+                    break;
+                case UNITS_SET:
+                    int unitsSlot = inventory().slots().slotOf(VarInts.getSigned(events));
+                    int units = VarInts.getSigned(events);
+                    if (unitsSlot != Slots.NONE) {
+                        inventory().setUnits(unitsSlot, units);
+                    }
+                    break;
+                case CASH_SET:
+                    inventory().setCash(COINS[events.get()], VarInts.get(events));
+                    break;
+                case CREDIT_SET:
+                    credit.clear();
+                    for (Coin coin : COINS) {
+                        for (long n = VarInts.get(events); n > 0; n--) {
+                            credit.add(coin);
+                        }
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown event in the journal of " + name);
+            }
+        }
+    }
+
+    /**
+     * Applies the last snapshot and replays the journals written since then, one generation
+     * after another, and then takes a new snapshot so that the next recovery starts from here
+     */
+    private void recover() {
+        Path snapshot = snapshotFile();
+        if (Files.exists(snapshot)) {
+            generation = readSnapshot(snapshot);
+        }
+
+        for (long current = generation; Files.exists(journalFile(current)); current++) {
+            Journal replayed = Journal.open(journalFile(current));
+            replayed.replay(this::replay);
+            replayed.close();
+            generation = current;
+        }
+
+        snapshot();
+    }
+
+    /**
+     * The snapshot is written before switching to the journal of the next generation, and the
+     * journals that it covers are deleted once it is durably in place, so that a power loss always
+     * leaves one or the other
+     */
+    private void snapshot() {
+        if (journal != null) {
+            journal.close();
+        }
+
+        generation++;
+        writeSnapshot();
+        journal = Journal.open(journalFile(generation));
+        operations = 0;
+
+        deleteJournalsBefore(generation);
+    }
+
+    private void deleteJournalsBefore(long generation) {
+        try (DirectoryStream<Path> journals = Files.newDirectoryStream(directory, name + ".*.journal")) {
+            for (Path file : journals) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(name.length() + 1, fileName.length() - ".journal".length());
+
+                if (number.chars().allMatch(Character::isDigit) && Long.parseLong(number) < generation) {
+                    Files.delete(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeSnapshot() {
+        ByteBuffer buffer = ByteBuffer.allocate(VarInts.MAX_SIZE + InventoryCodec.maxSize(inventory(), credit));
+
+        VarInts.put(buffer, generation);
+        InventoryCodec.write(buffer, inventory(), credit);
+        buffer.flip();
+
+        Path tmp = directory.resolve(name + ".snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            Files.move(tmp, snapshotFile(), ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        forceDirectory();
+    }
+
+    /**
+     * The move of the snapshot is only durable once the directory is forced. Platforms that cannot
+     * open a directory, such as Windows, make a move durable on their own.
+     */
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // nothing else to force
+        }
+    }
+
+    /**
+     * @return the generation of the journal that follows the given snapshot
+     */
+    private long readSnapshot(Path snapshot) {
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long generation = VarInts.get(buffer);
+        InventoryCodec.read(buffer, inventory(), credit);
+
+        return generation;
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve(name + ".snapshot");
+    }
+
+    private Path journalFile(long generation) {
+        return directory.resolve(name + "." + generation + ".journal");
+    }
+
+    private Seller seller() {
+        return (Seller) vendingMachine;
+    }
+
+    private Resetable resetable() {
+        return (Resetable) vendingMachine;
+    }
+
+    private Inventory inventory() {
+        return (Inventory) vendingMachine;
+    }
+
+    private static void putCounts(ByteBuffer buffer, List<Coin> coins) {
+        long[] counts = new long[COINS.length];
+        coins.forEach(coin -> counts[coin.ordinal()]++);
+
+        for (long count : counts) {
+            VarInts.put(buffer, count);
+        }
+    }
+
+}
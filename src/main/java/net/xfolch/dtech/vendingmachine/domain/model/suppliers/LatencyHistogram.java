@@ -0,0 +1,74 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds, with log-linear buckets in the manner of
+ * HdrHistogram: every power of two is split into {@link #SUB_BUCKETS} linear buckets, so that the
+ * value reported for a bucket is within about 6% of the recorded ones, whatever their magnitude.
+ * <p>
+ * Recording is a single atomic increment, and values are never lost, although a snapshot taken
+ * while recording may miss the latest ones.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+
+    private LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+    }
+
+    static LatencyHistogram newOne() {
+        return new LatencyHistogram();
+    }
+
+    void record(long nanos) {
+        counts.incrementAndGet(bucketOf(Math.max(0, nanos)));
+    }
+
+    /**
+     * @return a copy of the counts of every bucket
+     */
+    long[] counts() {
+        long[] copy = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            copy[bucket] = counts.get(bucket);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Values below {@link #SUB_BUCKETS} get a bucket each. The rest are bucketed by their highest
+     * bit, and then by the {@link #SUB_BUCKET_BITS} bits that follow it.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> (magnitude - 1)) & (SUB_BUCKETS - 1);
+
+        return magnitude * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the highest value that falls in the given bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int magnitude = bucket / SUB_BUCKETS;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - 1);
+
+        return lowest + (1L << (magnitude - 1)) - 1;
+    }
+
+}
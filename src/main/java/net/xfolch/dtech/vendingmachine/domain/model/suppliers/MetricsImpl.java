@@ -0,0 +1,168 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughChange;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughCredit;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotExists;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of the metrics, whose latencies are recorded into a histogram per operation and
+ * whose outcomes into a counter per outcome, see {@link SupplierFactory#instrumentedSupplier(Metrics)}
+ */
+final class MetricsImpl implements Metrics {
+
+    private static final MetricsImpl DISABLED = new MetricsImpl(false);
+
+    private final boolean enabled;
+    private final Map<Operation, LatencyHistogram> latencies;
+    private final Map<Outcome, LongAdder> outcomes;
+    private final LongAdder shortChanges;
+
+    private MetricsImpl(boolean enabled) {
+        this.enabled = enabled;
+        this.latencies = new EnumMap<>(Operation.class);
+        this.outcomes = new EnumMap<>(Outcome.class);
+        this.shortChanges = new LongAdder();
+
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, LatencyHistogram.newOne());
+        }
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, new LongAdder());
+        }
+    }
+
+    static MetricsImpl newOne() {
+        return new MetricsImpl(true);
+    }
+
+    static MetricsImpl disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Only the metrics of this factory know how to record
+     *
+     * @throws IllegalArgumentException if the given metrics were not made by this factory
+     */
+    static MetricsImpl of(Metrics metrics) {
+        if (!(metrics instanceof MetricsImpl)) {
+            throw new IllegalArgumentException("Metrics must be made by SupplierFactory, but were " + metrics);
+        }
+
+        return (MetricsImpl) metrics;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Snapshot snapshot() {
+        Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        this.latencies.forEach((operation, histogram) -> latencies.put(operation, histogram.counts()));
+
+        Map<Outcome, Long> outcomes = new EnumMap<>(Outcome.class);
+        this.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+
+        return new ImmutableSnapshot(latencies, outcomes, shortChanges.sum());
+    }
+
+    void record(Operation operation, long startNanos) {
+        latencies.get(operation).record(System.nanoTime() - startNanos);
+    }
+
+    void record(Outcome outcome) {
+        outcomes.get(outcome).increment();
+    }
+
+    void recordFailure(Exception failure) {
+        if (failure instanceof ProductNotExists) {
+            record(Outcome.PRODUCT_NOT_EXISTS);
+        } else if (failure instanceof ProductNotAvailable) {
+            record(Outcome.PRODUCT_NOT_AVAILABLE);
+        } else if (failure instanceof NotEnoughCredit) {
+            record(Outcome.NOT_ENOUGH_CREDIT);
+        } else if (failure instanceof NotEnoughChange) {
+            record(Outcome.NOT_ENOUGH_CHANGE);
+        }
+    }
+
+    /**
+     * Records that the change given back was less than the remaining, or none at all
+     */
+    void recordShortChange() {
+        shortChanges.increment();
+    }
+
+    /**
+     * Copy of the metrics at some point
+     */
+    private static final class ImmutableSnapshot implements Snapshot {
+        private final Map<Operation, long[]> latencies;
+        private final Map<Outcome, Long> outcomes;
+        private final long shortChanges;
+
+        private ImmutableSnapshot(Map<Operation, long[]> latencies, Map<Outcome, Long> outcomes, long shortChanges) {
+            this.latencies = latencies;
+            this.outcomes = outcomes;
+            this.shortChanges = shortChanges;
+        }
+
+        @Override
+        public long count(Operation operation) {
+            long count = 0;
+            for (long bucket : latencies.get(operation)) {
+                count += bucket;
+            }
+
+            return count;
+        }
+
+        @Override
+        public long latency(Operation operation, double percentile) {
+            long[] buckets = latencies.get(operation);
+            long threshold = (long) Math.ceil(count(operation) * Math.min(100, Math.max(0, percentile)) / 100);
+
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen > 0 && seen >= threshold) {
+                    return LatencyHistogram.highestValueOf(bucket);
+                }
+            }
+
+            return 0;
+        }
+
+        @Override
+        public long count(Outcome outcome) {
+            return outcomes.get(outcome);
+        }
+
+        @Override
+        public long shortChanges() {
+            return shortChanges;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Metrics(");
+            for (Operation operation : Operation.values()) {
+                builder.append(operation).append(": count=").append(count(operation))
+                        .append(" p50=").append(latency(operation, 50))
+                        .append("ns p99=").append(latency(operation, 99)).append("ns, ");
+            }
+            outcomes.forEach((outcome, count) -> builder.append(outcome).append('=').append(count).append(", "));
+
+            return builder.append("SHORT_CHANGES=").append(shortChanges).append(')').toString();
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.CoinCounts;
+import net.xfolch.dtech.vendingmachine.domain.model.Product;
+import net.xfolch.dtech.vendingmachine.domain.model.Purchase;
+import net.xfolch.dtech.vendingmachine.domain.model.Try;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughChange;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughCredit;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotExists;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Common steps of the vending machines when they sell a whole order
+ */
+final class Orders {
+
+    private static final Coin[] COINS = Coin.values();
+
+    private static final ThreadLocal<Escrow> ESCROW = ThreadLocal.withInitial(Escrow::new);
+
+    private Orders() {
+    }
+
+    /**
+     * Hooks of the vending machines on their own counters, so that they share how an order is sold
+     */
+    interface Stock extends Inventory {
+
+        /**
+         * @return whether there was any unit of the given slot to take
+         */
+        boolean takeUnit(int slot);
+
+        void giveUnit(int slot);
+
+        /**
+         * Gives back the change from the cash plus the credit, keeps into the cash the credit that is not
+         * given back, and clears it. Nothing is mutated if the change cannot be given back.
+         */
+        Optional<List<Coin>> giveChange(List<Coin> credit, long change);
+
+    }
+
+    /**
+     * Sells the products one after another while there is credit left, taking their units as they
+     * are checked, and gives back the change of the whole order at once. If it cannot be given back,
+     * the units are given back to the stock.
+     */
+    static List<Try<Purchase>> sellAll(Stock stock,
+                                       CoinCalculator calculator,
+                                       List<Integer> productIds,
+                                       List<Coin> credit) {
+
+        Slots slots = stock.slots();
+        List<Try<Purchase>> purchases = new ArrayList<>(productIds.size());
+        int[] sold = new int[productIds.size()];
+        int numSold = 0;
+        long available = calculator.sum(credit);
+
+        for (int i = 0; i < productIds.size(); i++) {
+            Integer productId = productIds.get(i);
+            int slot = slots.slotOf(productId);
+            sold[i] = Slots.NONE;
+
+            if (slot == Slots.NONE) {
+                purchases.add(Try.failure(ProductNotExists.newOne(productId)));
+            } else if (stock.units(slot) <= 0) {
+                purchases.add(Try.failure(ProductNotAvailable.newOne(productId)));
+            } else if (available < slots.priceInCents(slot)) {
+                purchases.add(Try.failure(NotEnoughCredit.newOne(productId)));
+            } else if (!stock.takeUnit(slot)) {
+                purchases.add(Try.failure(ProductNotAvailable.newOne(productId)));
+            } else {
+                available -= slots.priceInCents(slot);
+                sold[i] = slot;
+                numSold++;
+                purchases.add(null);
+            }
+        }
+
+        if (numSold == 0) {
+            return purchases;
+        }
+
+        Optional<List<Coin>> change = stock.giveChange(credit, available);
+
+        if (!change.isPresent()) {
+            for (int slot : sold) {
+                if (slot != Slots.NONE) {
+                    stock.giveUnit(slot);
+                }
+            }
+        }
+
+        return settle(purchases, sold, numSold, slots, change);
+    }
+
+    /**
+     * View of the cash plus the given credit, since the change may be given back with the very coins
+     * of the credit. It is reused by every sale of the calling thread, so it must not outlive the
+     * calculation it is handed over to.
+     */
+    static CoinCounts availableCash(Inventory inventory, List<Coin> credit) {
+        return ESCROW.get().of(inventory, credit);
+    }
+
+    /**
+     * Fills in the purchases of the sold slots, which are left empty while the order is checked.
+     * <p>
+     * If there is change, the last sold product carries it. Otherwise, every sold product fails
+     * because the change of the order cannot be given back.
+     *
+     * @param purchases where the sold products have no try yet
+     * @param sold      the slot of every product of the order, or {@link Slots#NONE} if it was not sold
+     */
+    static List<Try<Purchase>> settle(List<Try<Purchase>> purchases,
+                                      int[] sold,
+                                      int numSold,
+                                      Slots slots,
+                                      Optional<List<Coin>> change) {
+
+        int pending = numSold;
+        for (int i = 0; i < sold.length; i++) {
+            if (sold[i] != Slots.NONE) {
+                Product product = slots.product(sold[i]);
+                boolean last = --pending == 0;
+
+                purchases.set(i, change
+                        .map(coins -> Try.success(Purchase.builder()
+                                .setProduct(product)
+                                .setRemaining(last ? coins : Collections.emptyList())
+                                .build()))
+                        .orElseGet(() -> Try.failure(NotEnoughChange.newOne(product.getId()))));
+            }
+        }
+
+        return purchases;
+    }
+
+    private static final class Escrow implements CoinCounts {
+
+        private final long[] credit = new long[COINS.length];
+        private Inventory inventory;
+
+        Escrow of(Inventory inventory, List<Coin> credit) {
+            this.inventory = inventory;
+            Arrays.fill(this.credit, 0);
+            for (Coin coin : credit) {
+                this.credit[coin.ordinal()]++;
+            }
+
+            return this;
+        }
+
+        @Override
+        public long count(Coin coin) {
+            return inventory.cash(coin) + credit[coin.ordinal()];
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.CommandRing.Kind;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Thread-safe vending machine that publishes every operation as a command into the ring of its
+ * shard, whose consumer thread applies it to a vending machine that is not thread-safe.
+ * <p>
+ * So operations made from many threads are made one after another without any lock, while the
+ * vending machines of other shards make progress at the same time. As in
+ * {@link InMemoryVendingMachine}, the credit belongs to the vending machine, whereas sessions keep
+ * their own one.
+ * <p>
+ * Its inventory is read and written through the ring as well, except for what never changes.
+ */
+final class PipelinedVendingMachine implements VendingMachine, Seller, Resetable, Inventory {
+
+    private final VendingMachine vendingMachine;
+    private final CommandRing ring;
+
+    private PipelinedVendingMachine(VendingMachine vendingMachine, CommandRing ring) {
+        this.vendingMachine = vendingMachine;
+        this.ring = ring;
+    }
+
+    /**
+     * @param vendingMachine that must not be used but through the ring from now on
+     */
+    static PipelinedVendingMachine newOne(VendingMachine vendingMachine, CommandRing ring) {
+        return new PipelinedVendingMachine(vendingMachine, ring);
+    }
+
+    @Override
+    public VendingMachine insertCoin(Coin coin) {
+        ring.call(vendingMachine, Kind.INSERT_COIN, coin, null);
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Try<Purchase> selectProduct(Integer productId) {
+        return (Try<Purchase>) ring.call(vendingMachine, Kind.SELECT_PRODUCT, productId, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Try<Purchase>> purchase(Order order) {
+        return (List<Try<Purchase>>) ring.call(vendingMachine, Kind.PURCHASE, order, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Coin> cancel() {
+        return (List<Coin>) ring.call(vendingMachine, Kind.CANCEL, null, null);
+    }
+
+    @Override
+    public boolean isExactChangeOnly() {
+        return (Boolean) ring.call(vendingMachine, Kind.EXACT_CHANGE_ONLY, null, null);
+    }
+
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        return (Try<Purchase>) ring.call(vendingMachine, Kind.SELL, productId, credit);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        return (List<Try<Purchase>>) ring.call(vendingMachine, Kind.SELL_ALL, productIds, credit);
+    }
+
+    @Override
+    public void reset() {
+        ring.call(vendingMachine, Kind.RESET, null, null);
+    }
+
+    @Override
+    public Slots slots() {
+        return ((Inventory) vendingMachine).slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return (Integer) inventory(inventory -> inventory.units(slot));
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        inventory(inventory -> {
+            inventory.setUnits(slot, units);
+            return null;
+        });
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        inventory(inventory -> {
+            inventory.addUnits(slot, delta);
+            return null;
+        });
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return (Long) inventory(inventory -> inventory.cash(coin));
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        inventory(inventory -> {
+            inventory.setCash(coin, count);
+            return null;
+        });
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        inventory(inventory -> {
+            inventory.addCash(coin, delta);
+            return null;
+        });
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return ((Inventory) vendingMachine).initialCash(coin);
+    }
+
+    /**
+     * It is copied by the consumer thread, so that the caller does not read the credit while it changes
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Coin> credit() {
+        return (List<Coin>) inventory(inventory -> new ArrayList<>(inventory.credit()));
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        inventory(inventory -> {
+            inventory.setCredit(credit);
+            return null;
+        });
+    }
+
+    private Object inventory(Function<Inventory, Object> command) {
+        return ring.call(vendingMachine, Kind.INVENTORY, command, null);
+    }
+
+}
@@ -0,0 +1,338 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.Planogram;
+import net.xfolch.dtech.vendingmachine.domain.model.Product;
+import net.xfolch.dtech.vendingmachine.domain.model.ProductCatalog;
+import net.xfolch.dtech.vendingmachine.domain.model.Supplier;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Implementation of the planogram, whose file is read in place from memory, see
+ * {@link SupplierFactory#loadPlanogram(Path)}.
+ * <p>
+ * The first line of a product id defines the product, which is interned into the
+ * {@link ProductCatalog#global() global catalog}, so that all the vending machines share the same
+ * instance of it.
+ * <p>
+ * Vending machines that are laid out the same way are built together, so they share their slots
+ * too, and every layout is built in parallel.
+ */
+final class PlanogramImpl implements Planogram {
+
+    private final Map<String, Layout> machines;
+    private final Map<Integer, Product> products;
+
+    private PlanogramImpl(Map<String, Layout> machines, Map<Integer, Product> products) {
+        this.machines = machines;
+        this.products = products;
+    }
+
+    /**
+     * @return the planogram of the given file
+     * @throws IllegalArgumentException if some line is malformed
+     */
+    static PlanogramImpl load(Path file) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return new Parser(buffer).parse();
+    }
+
+    @Override
+    public Set<String> machines() {
+        return Collections.unmodifiableSet(machines.keySet());
+    }
+
+    @Override
+    public Collection<Product> products() {
+        return Collections.unmodifiableCollection(products.values());
+    }
+
+    @Override
+    public Map<String, VendingMachine> build(Supplier supplier) {
+        return build(supplier, Collections.emptyList());
+    }
+
+    @Override
+    public Map<String, VendingMachine> build(Supplier supplier, List<Coin> cash) {
+        Map<Layout, List<String>> names = new LinkedHashMap<>();
+        machines.forEach((name, layout) -> names.computeIfAbsent(layout, key -> new ArrayList<>()).add(name));
+
+        Layout[] layouts = names.keySet().toArray(new Layout[0]);
+        List<List<VendingMachine>> built = new ArrayList<>(Collections.nCopies(layouts.length, null));
+        IntStream.range(0, layouts.length).parallel().forEach(i ->
+                built.set(i, layouts[i].build(supplier, cash, names.get(layouts[i]))));
+
+        Map<String, VendingMachine> vendingMachines = new HashMap<>(machines.size() * 4 / 3 + 1);
+        for (int i = 0; i < layouts.length; i++) {
+            List<String> layoutNames = names.get(layouts[i]);
+            for (int machine = 0; machine < layoutNames.size(); machine++) {
+                vendingMachines.put(layoutNames.get(machine), built.get(i).get(machine));
+            }
+        }
+
+        Map<String, VendingMachine> ordered = new LinkedHashMap<>(machines.size() * 4 / 3 + 1);
+        machines.keySet().forEach(name -> ordered.put(name, vendingMachines.get(name)));
+
+        return Collections.unmodifiableMap(ordered);
+    }
+
+    /**
+     * Product lines of a vending machine, whose products are shared, so that layouts are compared
+     * by the identity of their products and their units
+     */
+    private static final class Layout {
+        private Product[] products = new Product[8];
+        private int[] units = new int[8];
+        private int size;
+        private int hash = 1;
+
+        void add(Product product, int numUnits) {
+            if (size == products.length) {
+                products = Arrays.copyOf(products, size * 2);
+                units = Arrays.copyOf(units, size * 2);
+            }
+            products[size] = product;
+            units[size] = numUnits;
+            size++;
+            hash = 31 * (31 * hash + System.identityHashCode(product)) + numUnits;
+        }
+
+        List<VendingMachine> build(Supplier supplier, List<Coin> cash, List<String> names) {
+            VendingMachine.Builder builder = supplier.newVendingMachine();
+            for (int line = 0; line < size; line++) {
+                builder = builder.addProduct(products[line], units[line]);
+            }
+
+            return builder.setCash(cash).build(names);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Layout that = (Layout) o;
+            if (size != that.size || hash != that.hash) return false;
+            for (int line = 0; line < size; line++) {
+                if (products[line] != that.products[line] || units[line] != that.units[line]) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Reads the fields of every line straight from the bytes of the file, decoding the name of a
+     * vending machine only when it differs from the one of the previous line, and the name of a product
+     * only the first time, as later lines of the product are compared byte by byte
+     */
+    private static final class Parser {
+        private final MappedByteBuffer buffer;
+        private final Map<String, Layout> machines = new LinkedHashMap<>();
+        private final Map<Integer, Product> products = new HashMap<>();
+        private final Map<Integer, Long> names = new HashMap<>();
+        private int position;
+        private int lineNumber;
+        private int previousStart;
+        private int previousEnd;
+        private Layout previous;
+
+        Parser(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        PlanogramImpl parse() {
+            while (position < buffer.limit()) {
+                lineNumber++;
+                byte first = buffer.get(position);
+                if (first == '\n' || first == '\r' || first == '#') {
+                    skipLine();
+                } else {
+                    parseLine();
+                }
+            }
+
+            return new PlanogramImpl(machines, products);
+        }
+
+        private void parseLine() {
+            int start = position;
+            Layout layout = layoutOf(start, field(false));
+
+            start = position;
+            int id = parseNumber(start, field(false));
+            int nameStart = position;
+            int nameEnd = field(false);
+            start = position;
+            long priceInCents = parsePrice(start, field(false));
+
+            Product product = products.get(id);
+            if (product == null) {
+                product = ProductCatalog.global().intern(Product.builder()
+                        .setId(id)
+                        .setName(decode(nameStart, nameEnd))
+                        .setPriceInCents(priceInCents)
+                        .build());
+                products.put(id, product);
+                names.put(id, (long) nameStart << 32 | nameEnd);
+            } else {
+                long name = names.get(id);
+                if (!sameBytes(nameStart, nameEnd, (int) (name >>> 32), (int) name)) {
+                    throw malformed("product " + id + " was defined with another name");
+                } else if (priceInCents != product.getPriceInCents()) {
+                    throw malformed("product " + id + " was defined with another price");
+                }
+            }
+
+            start = position;
+            layout.add(product, parseNumber(start, field(true)));
+            skipLine();
+        }
+
+        private Layout layoutOf(int start, int end) {
+            if (previous == null || !sameBytes(start, end, previousStart, previousEnd)) {
+                previous = machines.computeIfAbsent(decode(start, end), name -> new Layout());
+            }
+            previousStart = start;
+            previousEnd = end;
+
+            return previous;
+        }
+
+        /**
+         * Moves past the field at the current position and its separator, which must be a comma
+         * unless it is the last field of the line
+         *
+         * @return the end of the field
+         */
+        private int field(boolean last) {
+            while (position < buffer.limit()) {
+                byte b = buffer.get(position);
+                if (b == ',') {
+                    if (last) {
+                        throw malformed("too many fields");
+                    }
+                    return position++;
+                } else if (b == '\n' || b == '\r') {
+                    break;
+                }
+                position++;
+            }
+            if (!last) {
+                throw malformed("missing fields");
+            }
+
+            return position;
+        }
+
+        private void skipLine() {
+            while (position < buffer.limit() && buffer.get(position++) != '\n') {
+                // until the end of the line
+            }
+        }
+
+        private int parseNumber(int start, int end) {
+            if (start == end) {
+                throw malformed("empty number");
+            }
+
+            int number = 0;
+            for (int i = start; i < end; i++) {
+                int digit = digit(buffer.get(i));
+                if (number > (Integer.MAX_VALUE - digit) / 10) {
+                    throw malformed("number too large");
+                }
+                number = 10 * number + digit;
+            }
+
+            return number;
+        }
+
+        /**
+         * Any fraction of a cent is rounded down, as {@link Product.Builder#setPrice} does
+         */
+        private long parsePrice(int start, int end) {
+            if (start == end) {
+                throw malformed("empty price");
+            }
+
+            long cents = 0;
+            int decimals = -1;
+            for (int i = start; i < end; i++) {
+                byte b = buffer.get(i);
+                if (b == '.' && decimals < 0) {
+                    decimals = 0;
+                } else if (decimals < 2) {
+                    int digit = digit(b);
+                    if (cents > (Integer.MAX_VALUE - digit) / 100) {
+                        throw malformed("price too large");
+                    }
+                    cents = 10 * cents + digit;
+                    decimals += decimals >= 0 ? 1 : 0;
+                } else {
+                    digit(b);
+                }
+            }
+            for (int i = Math.max(decimals, 0); i < 2; i++) {
+                cents *= 10;
+            }
+
+            return cents;
+        }
+
+        private int digit(byte b) {
+            if (b < '0' || b > '9') {
+                throw malformed("not a number");
+            }
+
+            return b - '0';
+        }
+
+        private boolean sameBytes(int start, int end, int otherStart, int otherEnd) {
+            if (end - start != otherEnd - otherStart) {
+                return false;
+            }
+            for (int i = 0; i < end - start; i++) {
+                if (buffer.get(start + i) != buffer.get(otherStart + i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private String decode(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private IllegalArgumentException malformed(String reason) {
+            return new IllegalArgumentException("Malformed planogram at line " + lineNumber + ": " + reason);
+        }
+    }
+
+}
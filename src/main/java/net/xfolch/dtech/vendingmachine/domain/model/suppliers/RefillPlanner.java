@@ -0,0 +1,106 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.RefillManifest;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Plans and makes partial refills of vending machines through their inventory.
+ * <p>
+ * Every slot is topped up to the units it was built with. The cash is only topped up to the coins
+ * it was built with when it is close to asking for the exact amount, that is, when it already asks
+ * for it or would do so after giving a single coin away, since bringing coins otherwise costs
+ * more than it is worth.
+ */
+final class RefillPlanner {
+
+    private static final Coin[] COINS = Coin.values();
+
+    private static final Comparator<RefillManifest> MOST_URGENT_FIRST =
+            Comparator.comparing(RefillManifest::isNearExactChangeOnly).reversed()
+                    .thenComparing(Comparator.comparingInt(RefillManifest::getTotalUnits).reversed())
+                    .thenComparingInt(RefillManifest::getMachine);
+
+    private RefillPlanner() {
+    }
+
+    /**
+     * Vending machines are scanned in parallel over the common fork-join pool
+     */
+    static List<RefillManifest> plan(List<VendingMachine> vendingMachines) {
+        return IntStream.range(0, vendingMachines.size())
+                .parallel()
+                .mapToObj(machine -> plan(machine, inventoryOf(vendingMachines.get(machine))))
+                .filter(refill -> !refill.isEmpty())
+                .sorted(MOST_URGENT_FIRST)
+                .collect(toList());
+    }
+
+    static void refill(VendingMachine vendingMachine, RefillManifest refill) {
+        Inventory inventory = inventoryOf(vendingMachine);
+        Slots slots = inventory.slots();
+
+        refill.getUnits().forEach((productId, units) -> {
+            int slot = slots.slotOf(productId);
+            if (slot != Slots.NONE) {
+                inventory.addUnits(slot, units);
+            }
+        });
+        refill.getCoins().forEach(inventory::addCash);
+    }
+
+    private static RefillManifest plan(int machine, Inventory inventory) {
+        Slots slots = inventory.slots();
+        RefillManifest.Builder refill = RefillManifest.builder(machine);
+
+        for (int slot = 0; slot < slots.size(); slot++) {
+            refill.addUnits(slots.product(slot).getId(), slots.initialUnit(slot) - inventory.units(slot));
+        }
+
+        if (isNearExactChangeOnly(inventory)) {
+            refill.setNearExactChangeOnly(true);
+            for (Coin coin : COINS) {
+                refill.addCoins(coin, inventory.initialCash(coin) - inventory.cash(coin));
+            }
+        }
+
+        return refill.build();
+    }
+
+    private static boolean isNearExactChangeOnly(Inventory inventory) {
+        ChangeAvailability availability = ChangeAvailability.of(inventory::cash);
+        if (!availability.payableEveryAmount()) {
+            return true;
+        }
+
+        for (Coin coin : COINS) {
+            long count = inventory.cash(coin);
+            if (count > 0) {
+                availability.update(coin, count - 1);
+                boolean payable = availability.payableEveryAmount();
+                availability.update(coin, count);
+
+                if (!payable) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static Inventory inventoryOf(VendingMachine vendingMachine) {
+        if (vendingMachine instanceof Inventory) {
+            return (Inventory) vendingMachine;
+        }
+
+        throw new IllegalArgumentException(vendingMachine + " cannot be refilled");
+    }
+
+}
@@ -1,7 +1,9 @@
 package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
 
 import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.Order;
 import net.xfolch.dtech.vendingmachine.domain.model.Purchase;
+import net.xfolch.dtech.vendingmachine.domain.model.Session;
 import net.xfolch.dtech.vendingmachine.domain.model.Try;
 import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
 
@@ -16,7 +18,7 @@ import java.util.List;
  * <p>
  * Created by xfolch on 7/8/16.
  */
-final class ResetableVendingMachine implements VendingMachine, Resetable {
+final class ResetableVendingMachine implements VendingMachine, Seller, Resetable, Inventory {
 
     private final VendingMachine.Builder builder;
     private VendingMachine vendingMachine;
@@ -41,14 +43,104 @@ final class ResetableVendingMachine implements VendingMachine, Resetable {
         return vendingMachine.selectProduct(productId);
     }
 
+    @Override
+    public List<Try<Purchase>> purchase(Order order) {
+        return vendingMachine.purchase(order);
+    }
+
     @Override
     public List<Coin> cancel() {
         return vendingMachine.cancel();
     }
 
+    @Override
+    public boolean isExactChangeOnly() {
+        return vendingMachine.isExactChangeOnly();
+    }
+
+    /**
+     * Sessions sell through the current vending machine, so they outlive resets keeping their credit
+     */
+    @Override
+    public Session openSession() {
+        return CreditSession.newOne(this);
+    }
+
+    @Override
+    public Try<Purchase> sell(Integer productId, List<Coin> credit) {
+        return ((Seller) vendingMachine).sell(productId, credit);
+    }
+
+    @Override
+    public List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit) {
+        return ((Seller) vendingMachine).sellAll(productIds, credit);
+    }
+
+    @Override
+    public Slots slots() {
+        return inventory().slots();
+    }
+
+    @Override
+    public int units(int slot) {
+        return inventory().units(slot);
+    }
+
+    @Override
+    public void setUnits(int slot, int units) {
+        inventory().setUnits(slot, units);
+    }
+
+    @Override
+    public void addUnits(int slot, int delta) {
+        inventory().addUnits(slot, delta);
+    }
+
+    @Override
+    public long cash(Coin coin) {
+        return inventory().cash(coin);
+    }
+
+    @Override
+    public void setCash(Coin coin, long count) {
+        inventory().setCash(coin, count);
+    }
+
+    @Override
+    public void addCash(Coin coin, long delta) {
+        inventory().addCash(coin, delta);
+    }
+
+    @Override
+    public long initialCash(Coin coin) {
+        return inventory().initialCash(coin);
+    }
+
+    @Override
+    public List<Coin> credit() {
+        return inventory().credit();
+    }
+
+    @Override
+    public void setCredit(List<Coin> credit) {
+        inventory().setCredit(credit);
+    }
+
+    /**
+     * Vending machines that know how to reset themselves are reset in place, only building a new
+     * one otherwise
+     */
     @Override
     public void reset() {
-        vendingMachine = builder.build();
+        if (vendingMachine instanceof Resetable) {
+            ((Resetable) vendingMachine).reset();
+        } else {
+            vendingMachine = builder.build();
+        }
+    }
+
+    private Inventory inventory() {
+        return (Inventory) vendingMachine;
     }
 
 }
@@ -0,0 +1,16 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+/**
+ * Trait of the vending machines that hold resources, such as open files, which must be released
+ * once they are taken out of service.
+ * <p>
+ * Notice that it is not public because this trait only belongs to the supplier domain
+ */
+interface Retirable {
+
+    /**
+     * Releases the resources of this vending machine, which must not be used any more
+     */
+    void retire();
+
+}
@@ -0,0 +1,372 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.SalesAnalytics;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementation of the sales analytics, see {@link SupplierFactory#analyzedSupplier(SalesAnalytics)}.
+ * <p>
+ * Vending machines only offer their sales to a bounded queue, which never blocks them: a sale
+ * that does not fit is dropped and counted. A daemon thread takes the sales from the queue in
+ * batches and updates every figure in constant time per sale, where the top sellers are the heavy
+ * hitters of a count-min sketch of the units sold. A sale that cannot be analyzed is reported to
+ * the uncaught exception handler of that thread, which goes on with the next one.
+ * <p>
+ * Seconds are counted from the time the analytics were made, since {@link System#nanoTime()} may
+ * be negative.
+ */
+final class SalesAnalyticsImpl implements SalesAnalytics {
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int BATCH = 1024;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1 << 12;
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final BlockingQueue<Sale> queue;
+    private final AtomicLong offered;
+    private final AtomicLong dropped;
+    private volatile long processed;
+    private final Object offering;
+    private volatile boolean stopped;
+    private final Thread consumer;
+    private final long origin;
+
+    private final long[] windowSeconds;
+    private final long[] windowUnits;
+    private final long[] windowRevenue;
+    private final Map<Integer, Long> productRevenue;
+    private final Map<Integer, Long> machineRevenue;
+    private final long[][] sketch;
+    private final Map<Integer, Long> topSellers;
+    private final Map<Long, long[]> stockLevels;
+
+    private SalesAnalyticsImpl() {
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        this.offered = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.offering = new Object();
+        this.windowSeconds = new long[WINDOW_SECONDS];
+        this.windowUnits = new long[WINDOW_SECONDS];
+        this.windowRevenue = new long[WINDOW_SECONDS];
+        this.productRevenue = new HashMap<>();
+        this.machineRevenue = new HashMap<>();
+        this.sketch = new long[SKETCH_DEPTH][SKETCH_WIDTH];
+        this.topSellers = new HashMap<>();
+        this.stockLevels = new HashMap<>();
+
+        Arrays.fill(windowSeconds, Long.MIN_VALUE);
+
+        this.origin = System.nanoTime();
+        this.consumer = new Thread(this::consume, "sales-analytics");
+        consumer.setDaemon(true);
+    }
+
+    /**
+     * @return new analytics with no sale yet, whose thread is already waiting for sales
+     */
+    static SalesAnalyticsImpl newOne() {
+        SalesAnalyticsImpl analytics = new SalesAnalyticsImpl();
+        analytics.consumer.start();
+
+        return analytics;
+    }
+
+    /**
+     * Only the analytics of this factory know how to be offered sales
+     *
+     * @throws IllegalArgumentException if the given analytics were not made by this factory
+     */
+    static SalesAnalyticsImpl of(SalesAnalytics analytics) {
+        if (!(analytics instanceof SalesAnalyticsImpl)) {
+            throw new IllegalArgumentException("Sales analytics must be made by SupplierFactory, but were " + analytics);
+        }
+
+        return (SalesAnalyticsImpl) analytics;
+    }
+
+    @Override
+    public synchronized long unitsSold(int seconds) {
+        return sumWindow(windowUnits, seconds);
+    }
+
+    @Override
+    public synchronized long revenueInCents(int seconds) {
+        return sumWindow(windowRevenue, seconds);
+    }
+
+    @Override
+    public synchronized long productRevenueInCents(Integer productId) {
+        return productRevenue.getOrDefault(productId, 0L);
+    }
+
+    @Override
+    public synchronized long machineRevenueInCents(int machine) {
+        return machineRevenue.getOrDefault(machine, 0L);
+    }
+
+    @Override
+    public synchronized long estimatedUnitsSold(Integer productId) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            estimate = Math.min(estimate, sketch[row][column(row, productId)]);
+        }
+
+        return estimate;
+    }
+
+    @Override
+    public synchronized List<Integer> topSellers() {
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(topSellers.entrySet());
+        entries.sort(Map.Entry.<Integer, Long>comparingByValue().reversed());
+
+        List<Integer> productIds = new ArrayList<>(entries.size());
+        entries.forEach(entry -> productIds.add(entry.getKey()));
+
+        return productIds;
+    }
+
+    @Override
+    public synchronized Optional<Duration> stockOutForecast(int machine, Integer productId) {
+        long[] level = stockLevels.get(key(machine, productId));
+        if (level == null || level[StockLevel.REMAINING] < 0) {
+            return Optional.empty();
+        } else if (level[StockLevel.REMAINING] == 0) {
+            return Optional.of(Duration.ZERO);
+        } else if (level[StockLevel.SALES] < 2) {
+            return Optional.empty();
+        }
+
+        long elapsed = level[StockLevel.LAST_NANOS] - level[StockLevel.FIRST_NANOS];
+        long nanosPerSale = elapsed / (level[StockLevel.SALES] - 1);
+
+        return Optional.of(Duration.ofNanos(nanosPerSale * level[StockLevel.REMAINING]));
+    }
+
+    @Override
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * It returns as well once the analytics are shut down, since nothing analyzes the sales any more
+     */
+    @Override
+    public void flush() {
+        long target = offered.get();
+        while (processed < target && consumer.isAlive()) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        synchronized (offering) {
+            stopped = true;
+        }
+        consumer.interrupt();
+
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Offers a sale, unless the queue is full or the analytics are shut down. Checking that they are
+     * not and queueing the sale are a single step against {@link #shutdown()}, so every sale is either
+     * analyzed or dropped. Offers already take turns on the lock of the queue, which this one only lengthens.
+     *
+     * @param remaining units of the product left in the vending machine, or a negative number if unknown
+     */
+    void offer(int machine, Integer productId, long priceInCents, int remaining) {
+        Sale sale = new Sale(machine, productId, priceInCents, remaining, System.nanoTime());
+        synchronized (offering) {
+            if (!stopped && queue.offer(sale)) {
+                offered.incrementAndGet();
+                return;
+            }
+        }
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Once the analytics are shut down, the sales already offered are analyzed before the thread ends
+     */
+    private void consume() {
+        List<Sale> batch = new ArrayList<>(BATCH);
+        while (true) {
+            Sale sale = stopped ? queue.poll() : take();
+            if (sale == null) {
+                if (stopped) {
+                    return;
+                }
+                continue;
+            }
+
+            batch.add(sale);
+            queue.drainTo(batch, BATCH - 1);
+
+            synchronized (this) {
+                for (Sale each : batch) {
+                    analyzeSafely(each);
+                }
+            }
+            processed += batch.size();
+            batch.clear();
+        }
+    }
+
+    /**
+     * @return the next sale, or nothing if the thread is interrupted meanwhile
+     */
+    private Sale take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            return null;
+        }
+    }
+
+    private void analyzeSafely(Sale sale) {
+        try {
+            analyze(sale);
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private void analyze(Sale sale) {
+        long second = secondOf(sale.nanos);
+        int bucket = (int) Math.floorMod(second, (long) WINDOW_SECONDS);
+        if (windowSeconds[bucket] != second) {
+            windowSeconds[bucket] = second;
+            windowUnits[bucket] = 0;
+            windowRevenue[bucket] = 0;
+        }
+        windowUnits[bucket]++;
+        windowRevenue[bucket] += sale.priceInCents;
+
+        productRevenue.merge(sale.productId, sale.priceInCents, Long::sum);
+        machineRevenue.merge(sale.machine, sale.priceInCents, Long::sum);
+
+        updateTopSellers(sale.productId, addToSketch(sale.productId));
+
+        long[] level = stockLevels.computeIfAbsent(key(sale.machine, sale.productId), key -> StockLevel.first(sale.nanos));
+        level[StockLevel.REMAINING] = sale.remaining;
+        level[StockLevel.SALES]++;
+        level[StockLevel.LAST_NANOS] = sale.nanos;
+    }
+
+    /**
+     * @return the estimate of the units sold of the given product, once this sale is added
+     */
+    private long addToSketch(Integer productId) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            estimate = Math.min(estimate, ++sketch[row][column(row, productId)]);
+        }
+
+        return estimate;
+    }
+
+    /**
+     * The product takes the place of the top seller with the lowest estimate when it outsells it
+     */
+    private void updateTopSellers(Integer productId, long estimate) {
+        if (topSellers.containsKey(productId) || topSellers.size() < TOP_SELLERS) {
+            topSellers.put(productId, estimate);
+            return;
+        }
+
+        Map.Entry<Integer, Long> lowest = null;
+        for (Map.Entry<Integer, Long> entry : topSellers.entrySet()) {
+            if (lowest == null || entry.getValue() < lowest.getValue()) {
+                lowest = entry;
+            }
+        }
+
+        if (lowest != null && estimate > lowest.getValue()) {
+            topSellers.remove(lowest.getKey());
+            topSellers.put(productId, estimate);
+        }
+    }
+
+    private long sumWindow(long[] counts, int seconds) {
+        long now = secondOf(System.nanoTime());
+        long from = now - Math.min(seconds, WINDOW_SECONDS);
+
+        long sum = 0;
+        for (int bucket = 0; bucket < WINDOW_SECONDS; bucket++) {
+            if (windowSeconds[bucket] > from && windowSeconds[bucket] <= now) {
+                sum += counts[bucket];
+            }
+        }
+
+        return sum;
+    }
+
+    private long secondOf(long nanos) {
+        return Math.floorDiv(nanos - origin, NANOS_PER_SECOND);
+    }
+
+    private static int column(int row, Integer productId) {
+        int h = (Objects.hashCode(productId) + row) * 0x9E3779B9 + row * 0x85EBCA6B;
+        h ^= h >>> 16;
+
+        return h & (SKETCH_WIDTH - 1);
+    }
+
+    private static long key(int machine, Integer productId) {
+        return (long) machine << 32 | (Objects.hashCode(productId) & 0xFFFFFFFFL);
+    }
+
+    private static final class Sale {
+        final int machine;
+        final Integer productId;
+        final long priceInCents;
+        final int remaining;
+        final long nanos;
+
+        Sale(int machine, Integer productId, long priceInCents, int remaining, long nanos) {
+            this.machine = machine;
+            this.productId = productId;
+            this.priceInCents = priceInCents;
+            this.remaining = remaining;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Layout of the stock level of a product of a vending machine
+     */
+    private static final class StockLevel {
+        static final int REMAINING = 0;
+        static final int SALES = 1;
+        static final int FIRST_NANOS = 2;
+        static final int LAST_NANOS = 3;
+
+        static long[] first(long nanos) {
+            long[] level = new long[4];
+            level[FIRST_NANOS] = nanos;
+
+            return level;
+        }
+    }
+
+}
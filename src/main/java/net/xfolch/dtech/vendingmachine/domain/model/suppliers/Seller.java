@@ -0,0 +1,27 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Coin;
+import net.xfolch.dtech.vendingmachine.domain.model.Purchase;
+import net.xfolch.dtech.vendingmachine.domain.model.Try;
+
+import java.util.List;
+
+/**
+ * Trait of the vending machines that sell products against a credit held by a session, instead
+ * of their own one
+ */
+interface Seller {
+
+    /**
+     * Sells the given product paying with the given credit, which is cleared only if the purchase
+     * succeeds. The credit coins never are part of the cash until they pay for a product.
+     */
+    Try<Purchase> sell(Integer productId, List<Coin> credit);
+
+    /**
+     * Sells all the given products paying with the given credit, figuring out the change only once.
+     * The credit is cleared only if some product is sold.
+     */
+    List<Try<Purchase>> sellAll(List<Integer> productIds, List<Coin> credit);
+
+}
@@ -0,0 +1,90 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.*;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous facade that serves a vending machine through its own {@link SerialExecutor}, so
+ * that the vending machine does not need to be thread-safe: every operation is made by a single
+ * writer at a time, in the order they were requested.
+ * <p>
+ * The vending machine must not be used but through this facade.
+ */
+final class SerialAsyncVendingMachine implements AsyncVendingMachine {
+
+    private final VendingMachine vendingMachine;
+    private final SerialExecutor executor;
+    private volatile long operations;
+
+    private SerialAsyncVendingMachine(VendingMachine vendingMachine, Executor executor) {
+        this.vendingMachine = vendingMachine;
+        this.executor = SerialExecutor.over(executor);
+    }
+
+    static SerialAsyncVendingMachine newOne(VendingMachine vendingMachine, Executor executor) {
+        return new SerialAsyncVendingMachine(vendingMachine, executor);
+    }
+
+    @Override
+    public CompletableFuture<Try<Coin>> insertCoin(Coin coin) {
+        return submit(() -> {
+            vendingMachine.insertCoin(coin);
+            return Try.success(coin);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Try<Purchase>> selectProduct(Integer productId) {
+        return submit(() -> vendingMachine.selectProduct(productId));
+    }
+
+    @Override
+    public CompletableFuture<Try<List<Coin>>> cancel() {
+        return submit(() -> Try.success(vendingMachine.cancel()));
+    }
+
+    /**
+     * @return how many operations have been requested but not made yet
+     */
+    int pending() {
+        return executor.pending();
+    }
+
+    /**
+     * @return how many operations have been made so far
+     */
+    long operations() {
+        return operations;
+    }
+
+    /**
+     * Operations are counted by the single writer of the moment, so the count needs no atomic update.
+     * An operation that cannot be submitted at all fails as well.
+     */
+    private <T> CompletableFuture<Try<T>> submit(Callable<Try<T>> operation) {
+        CompletableFuture<Try<T>> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                operations++;
+                try {
+                    future.complete(operation.call());
+                } catch (Exception e) {
+                    future.complete(Try.failure(e));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.complete(Try.failure(e));
+        }
+
+        return future;
+    }
+
+}
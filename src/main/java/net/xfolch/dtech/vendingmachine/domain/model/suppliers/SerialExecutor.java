@@ -0,0 +1,98 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor that runs its tasks one at a time, in the order they were submitted, over a shared
+ * executor, so that a single writer acts on a vending machine without locking it.
+ * <p>
+ * It only takes a thread of the shared executor while it has pending tasks, and gives it back
+ * every {@link #BATCH} tasks, so that many serial executors make progress on a few threads.
+ */
+final class SerialExecutor implements Executor {
+
+    private static final int BATCH = 64;
+
+    private final Executor executor;
+    private final Queue<Runnable> tasks;
+    private final AtomicInteger pending;
+
+    private SerialExecutor(Executor executor) {
+        this.executor = executor;
+        this.tasks = new ConcurrentLinkedQueue<>();
+        this.pending = new AtomicInteger();
+    }
+
+    static SerialExecutor over(Executor executor) {
+        return new SerialExecutor(executor);
+    }
+
+    /**
+     * @return how many tasks have been submitted but not run yet, including the running one
+     */
+    int pending() {
+        return pending.get();
+    }
+
+    /**
+     * The task is queued before it is counted, so whoever drains finds it. If the shared executor
+     * rejects the drain, the task is withdrawn and the rejection is thrown, whereas the tasks that other
+     * threads queued meanwhile are drained by the calling thread, as their submitters already returned.
+     */
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (pending.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::drain);
+            } catch (RuntimeException e) {
+                tasks.remove(task);
+                if (pending.decrementAndGet() != 0) {
+                    drain();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Keeps draining on the same thread while the shared executor rejects to take over
+     */
+    private void drain() {
+        for (int ran = 1; ; ran++) {
+            run(tasks.poll());
+
+            if (pending.decrementAndGet() == 0) {
+                return;
+            } else if (ran % BATCH == 0 && handOver()) {
+                return;
+            }
+        }
+    }
+
+    private boolean handOver() {
+        try {
+            executor.execute(this::drain);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A task that throws must not hold up the ones after it, so its failure is handed over to the
+     * thread as if nobody had caught it, but the thread goes on draining
+     */
+    private static void run(Runnable task) {
+        try {
+            task.run();
+        } catch (Throwable t) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.AsyncVendingMachine;
+import net.xfolch.dtech.vendingmachine.domain.model.ShardedFleet;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Implementation of the sharded fleet, whose shards are single thread executors that serve every
+ * vending machine through a {@link SerialAsyncVendingMachine}, see {@link SupplierFactory#shardedFleet(List, int)}
+ */
+final class ShardedFleetImpl implements ShardedFleet {
+
+    private final ExecutorService[] shards;
+    private final SerialAsyncVendingMachine[] machines;
+    private final AtomicIntegerArray shardOf;
+    private final long[] rebalanced;
+    private final long[] sampled;
+    private long sampledAt;
+
+    private ShardedFleetImpl(List<VendingMachine> vendingMachines, int shards) {
+        this.shards = new ExecutorService[shards];
+        this.machines = new SerialAsyncVendingMachine[vendingMachines.size()];
+        this.shardOf = new AtomicIntegerArray(vendingMachines.size());
+        this.rebalanced = new long[vendingMachines.size()];
+        this.sampled = new long[vendingMachines.size()];
+        this.sampledAt = System.nanoTime();
+
+        for (int shard = 0; shard < shards; shard++) {
+            String name = "fleet-shard-" + shard;
+            this.shards[shard] = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        for (int machine = 0; machine < machines.length; machine++) {
+            int machineId = machine;
+            shardOf.set(machine, machine % shards);
+            machines[machine] = SerialAsyncVendingMachine.newOne(vendingMachines.get(machine),
+                    task -> this.shards[shardOf.get(machineId)].execute(task));
+        }
+    }
+
+    static ShardedFleetImpl of(List<VendingMachine> vendingMachines, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("There must be some shard, but were " + shards);
+        }
+
+        return new ShardedFleetImpl(vendingMachines, shards);
+    }
+
+    @Override
+    public int size() {
+        return machines.length;
+    }
+
+    @Override
+    public AsyncVendingMachine machine(int machineId) {
+        return machines[machineId];
+    }
+
+    @Override
+    public int shardOf(int machineId) {
+        return shardOf.get(machineId);
+    }
+
+    /**
+     * The loads are computed once, and the vending machines that made some operation are kept per shard
+     * ordered by load, so that every move finds its vending machine in logarithmic time
+     */
+    @Override
+    public synchronized int rebalance() {
+        long[] shardLoads = new long[shards.length];
+        List<NavigableSet<Movable>> movables = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            movables.add(new TreeSet<>());
+        }
+
+        for (int machine = 0; machine < machines.length; machine++) {
+            long operations = machines[machine].operations();
+            long load = operations - rebalanced[machine];
+            rebalanced[machine] = operations;
+
+            int shard = shardOf.get(machine);
+            shardLoads[shard] += load;
+            if (load > 0) {
+                movables.get(shard).add(new Movable(machine, load));
+            }
+        }
+
+        int moved = 0;
+        while (moved < machines.length) {
+            int busiest = 0;
+            int idlest = 0;
+            for (int shard = 1; shard < shards.length; shard++) {
+                busiest = shardLoads[shard] > shardLoads[busiest] ? shard : busiest;
+                idlest = shardLoads[shard] < shardLoads[idlest] ? shard : idlest;
+            }
+
+            Movable candidate = movables.get(busiest).floor(Movable.upTo((shardLoads[busiest] - shardLoads[idlest]) / 2));
+            if (candidate == null) {
+                return moved;
+            }
+
+            movables.get(busiest).remove(candidate);
+            movables.get(idlest).add(candidate);
+            shardOf.set(candidate.machine, idlest);
+            shardLoads[busiest] -= candidate.load;
+            shardLoads[idlest] += candidate.load;
+            moved++;
+        }
+
+        return moved;
+    }
+
+    @Override
+    public synchronized List<ShardStats> stats() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - sampledAt) / 1e9;
+        sampledAt = now;
+
+        int[] shardMachines = new int[shards.length];
+        long[] queueDepths = new long[shards.length];
+        long[] operations = new long[shards.length];
+
+        for (int machine = 0; machine < machines.length; machine++) {
+            int shard = shardOf.get(machine);
+            long made = machines[machine].operations();
+
+            shardMachines[shard]++;
+            queueDepths[shard] += machines[machine].pending();
+            operations[shard] += made - sampled[machine];
+            sampled[machine] = made;
+        }
+
+        List<ShardStats> stats = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            stats.add(new PeriodStats(shard, shardMachines[shard], queueDepths[shard], operations[shard],
+                    operations[shard] / seconds));
+        }
+
+        return Collections.unmodifiableList(stats);
+    }
+
+    @Override
+    public void shutdown() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    /**
+     * Vending machine that made some operation since the previous rebalance, ordered by load and then,
+     * among the same load, by id from the last one, so that the greatest one up to a load is the busiest
+     * vending machine with the lowest id
+     */
+    private static final class Movable implements Comparable<Movable> {
+        private final int machine;
+        private final long load;
+
+        private Movable(int machine, long load) {
+            this.machine = machine;
+            this.load = load;
+        }
+
+        /**
+         * @return the greatest movable with the given load, to look the busiest one up to it
+         */
+        static Movable upTo(long load) {
+            return new Movable(-1, load);
+        }
+
+        @Override
+        public int compareTo(Movable other) {
+            int byLoad = Long.compare(load, other.load);
+            return byLoad != 0 ? byLoad : Integer.compare(other.machine, machine);
+        }
+    }
+
+    /**
+     * Statistics of a shard over the period since the previous call
+     */
+    private static final class PeriodStats implements ShardStats {
+        private final int shard;
+        private final int machines;
+        private final long queueDepth;
+        private final long operations;
+        private final double throughput;
+
+        private PeriodStats(int shard, int machines, long queueDepth, long operations, double throughput) {
+            this.shard = shard;
+            this.machines = machines;
+            this.queueDepth = queueDepth;
+            this.operations = operations;
+            this.throughput = throughput;
+        }
+
+        @Override
+        public int shard() {
+            return shard;
+        }
+
+        @Override
+        public int machines() {
+            return machines;
+        }
+
+        @Override
+        public long queueDepth() {
+            return queueDepth;
+        }
+
+        @Override
+        public long operations() {
+            return operations;
+        }
+
+        @Override
+        public double throughput() {
+            return throughput;
+        }
+
+        @Override
+        public String toString() {
+            return "Shard(" + shard + ": machines=" + machines + ", queueDepth=" + queueDepth
+                    + ", operations=" + operations + ", throughput=" + Math.round(throughput) + "/s)";
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Product;
+import net.xfolch.dtech.vendingmachine.domain.model.ProductCatalog;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable index of the product lines of a vending machine, where each line gets a slot
+ * numbered from zero so that its stock can be held in a plain {@code int[]}.
+ * <p>
+ * Looking up the slot of a product id is constant time: ids are mapped through a dense
+ * array when they are small enough, and through an open-addressing table of primitive
+ * ints otherwise. Products without id cannot be selected, so they get no slot.
+ * <p>
+ * Slots refer to their products by their handles in the {@link ProductCatalog#global() global catalog},
+ * so vending machines with the same products share the same instances of them.
+ */
+final class Slots {
+
+    static final int NONE = -1;
+
+    /**
+     * Dense lookup is used while the highest id is not much bigger than the number of lines
+     */
+    private static final int DENSE_SLACK = 64;
+
+    private final ProductCatalog catalog;
+    private final int[] handles;
+    private final int[] units;
+    private final int[] dense;
+    private final int[] keys;
+    private final int[] values;
+    private final int mask;
+
+    private Slots(ProductCatalog catalog, int[] handles, int[] units) {
+        this.catalog = catalog;
+        this.handles = handles;
+        this.units = units;
+
+        Product[] products = new Product[handles.length];
+        for (int slot = 0; slot < handles.length; slot++) {
+            products[slot] = catalog.product(handles[slot]);
+        }
+
+        int maxId = maxId(products);
+
+        if (maxId < 2 * products.length + DENSE_SLACK) {
+            this.dense = denseIndex(products, maxId);
+            this.keys = null;
+            this.values = null;
+            this.mask = 0;
+        } else {
+            int capacity = Integer.highestOneBit(Math.max(2, products.length) * 2) << 1;
+            this.dense = null;
+            this.keys = new int[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+            hashIndex(products);
+        }
+    }
+
+    static Slots of(Collection<ProductLine> lines) {
+        ProductCatalog catalog = ProductCatalog.global();
+        int[] handles = new int[lines.size()];
+        int[] units = new int[lines.size()];
+
+        int slot = 0;
+        for (ProductLine line : lines) {
+            handles[slot] = catalog.handleOf(line.getProduct());
+            units[slot] = line.getNumUnits();
+            slot++;
+        }
+
+        return new Slots(catalog, handles, units);
+    }
+
+    /**
+     * @return the slot of the given product id, or {@link #NONE} if there is no such product
+     */
+    int slotOf(Integer productId) {
+        if (productId == null) {
+            return NONE;
+        }
+
+        int id = productId;
+
+        if (dense != null) {
+            return id >= 0 && id < dense.length ? dense[id] : NONE;
+        }
+
+        for (int i = mix(id) & mask; values[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == id) {
+                return values[i] - 1;
+            }
+        }
+
+        return NONE;
+    }
+
+    int size() {
+        return handles.length;
+    }
+
+    Product product(int slot) {
+        return catalog.product(handles[slot]);
+    }
+
+    long priceInCents(int slot) {
+        return catalog.priceInCents(handles[slot]);
+    }
+
+    int initialUnit(int slot) {
+        return units[slot];
+    }
+
+    /**
+     * @return a fresh copy of the units each slot was configured with
+     */
+    int[] initialUnits() {
+        return units.clone();
+    }
+
+    private static int maxId(Product[] products) {
+        int max = -1;
+        for (Product product : products) {
+            Integer id = product.getId();
+            if (id != null) {
+                if (id < 0) {
+                    return Integer.MAX_VALUE;
+                }
+                max = Math.max(max, id);
+            }
+        }
+
+        return max;
+    }
+
+    private static int[] denseIndex(Product[] products, int maxId) {
+        int[] index = new int[maxId + 1];
+        Arrays.fill(index, NONE);
+
+        for (int slot = 0; slot < products.length; slot++) {
+            Integer id = products[slot].getId();
+            if (id != null) {
+                index[id] = slot;
+            }
+        }
+
+        return index;
+    }
+
+    private void hashIndex(Product[] products) {
+        for (int slot = 0; slot < products.length; slot++) {
+            Integer id = products[slot].getId();
+            if (id != null) {
+                int i = mix(id) & mask;
+                while (values[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = id;
+                values[i] = slot + 1;
+            }
+        }
+    }
+
+    /**
+     * Spreads consecutive ids over the table
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -1,9 +1,19 @@
 package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
 
+import net.xfolch.dtech.vendingmachine.domain.model.AsyncVendingMachine;
 import net.xfolch.dtech.vendingmachine.domain.model.CoinCalculator;
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics;
+import net.xfolch.dtech.vendingmachine.domain.model.Planogram;
+import net.xfolch.dtech.vendingmachine.domain.model.SalesAnalytics;
+import net.xfolch.dtech.vendingmachine.domain.model.ShardedFleet;
 import net.xfolch.dtech.vendingmachine.domain.model.Supplier;
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine;
 import net.xfolch.dtech.vendingmachine.domain.model.calculators.CoinCalculatorFactory;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * Public singleton factory that provides different supplier instances to our domain model
  * <p>
@@ -21,6 +31,142 @@ public final class SupplierFactory {
         return SupplierImpl.newOne(CoinCalculatorFactory.highestValuedCoinCalculator());
     }
 
+    /**
+     * @return a supplier who will provide vending machines that only sell when they can give back the exact change
+     */
+    public static Supplier exactChangeSupplier() {
+        return SupplierImpl.newOne(CoinCalculatorFactory.lookupTableCoinCalculator());
+    }
+
+    /**
+     * @return a supplier who will provide thread-safe vending machines, where every session opened on them
+     * keeps its own credit, that only sell when they can give back the exact change
+     */
+    public static Supplier concurrentSupplier() {
+        return SupplierImpl.concurrent(CoinCalculatorFactory.lookupTableCoinCalculator());
+    }
+
+    /**
+     * @return a supplier who will provide vending machines that have a highest-valued coin strategy
+     * for remaining change, and whose state is laid out compactly when they are built in bulk through
+     * {@link net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.Builder#build(int)}
+     */
+    public static Supplier fleetSupplier() {
+        return SupplierImpl.fleet(CoinCalculatorFactory.highestValuedCoinCalculator());
+    }
+
+    /**
+     * Returns a supplier who will provide vending machines that have a highest-valued coin strategy
+     * for remaining change, and that record their state in the given directory. Every vending machine
+     * must be named, and the one built with the same name by a new supplier on the same directory
+     * recovers the state that it had.
+     *
+     * @param directory where the journals and snapshots of the vending machines are written
+     * @return a supplier whose vending machines survive a restart
+     */
+    public static Supplier journaledSupplier(Path directory) {
+        return SupplierImpl.journaled(CoinCalculatorFactory.highestValuedCoinCalculator(), directory);
+    }
+
+    /**
+     * Returns a supplier who will provide vending machines that have a highest-valued coin strategy
+     * for remaining change, and that record the latency and outcome of their operations
+     *
+     * @param metrics where the vending machines record, which cost nothing if they are disabled
+     * @return a supplier whose vending machines are instrumented
+     * @throws IllegalArgumentException if the metrics were not made by this factory
+     */
+    public static Supplier instrumentedSupplier(Metrics metrics) {
+        return SupplierImpl.instrumented(CoinCalculatorFactory.highestValuedCoinCalculator(), MetricsImpl.of(metrics));
+    }
+
+    /**
+     * @return new metrics with nothing recorded yet, for {@link #instrumentedSupplier(Metrics)}
+     */
+    public static Metrics newMetrics() {
+        return MetricsImpl.newOne();
+    }
+
+    /**
+     * @return metrics that record nothing, for {@link #instrumentedSupplier(Metrics)}
+     */
+    public static Metrics disabledMetrics() {
+        return MetricsImpl.disabled();
+    }
+
+    /**
+     * Returns a supplier who will provide thread-safe vending machines that have a highest-valued coin
+     * strategy for remaining change, and whose operations are published into a preallocated ring of
+     * commands that a single thread per shard applies, one after another, without any lock
+     *
+     * @param shards how many rings and consumer threads the vending machines are spread over
+     * @return a supplier whose vending machines are served by a command pipeline
+     */
+    public static Supplier pipelinedSupplier(int shards) {
+        return SupplierImpl.pipelined(CoinCalculatorFactory.highestValuedCoinCalculator(), shards);
+    }
+
+    /**
+     * Returns a supplier who will provide vending machines that have a highest-valued coin strategy
+     * for remaining change, and that have their sales analyzed off the purchase thread
+     *
+     * @param analytics where the vending machines offer their sales, numbered in the order they are built
+     * @return a supplier whose vending machines are analyzed
+     * @throws IllegalArgumentException if the analytics were not made by this factory
+     */
+    public static Supplier analyzedSupplier(SalesAnalytics analytics) {
+        return SupplierImpl.analyzed(CoinCalculatorFactory.highestValuedCoinCalculator(), SalesAnalyticsImpl.of(analytics));
+    }
+
+    /**
+     * @return new sales analytics with no sale yet, for {@link #analyzedSupplier(SalesAnalytics)}
+     */
+    public static SalesAnalytics newSalesAnalytics() {
+        return SalesAnalyticsImpl.newOne();
+    }
+
+    /**
+     * Returns a non-blocking facade of the given vending machine, which is served by a single writer
+     * at a time over the given executor. Many vending machines may share the same executor: each one
+     * keeps the order of its operations, while all of them make progress on the threads of the executor.
+     *
+     * @param vendingMachine that must not be used but through the facade from now on
+     * @param executor       whose threads serve the vending machine, such as a small pool or a virtual
+     *                       thread per task executor
+     * @return a non-blocking facade of the given vending machine
+     */
+    public static AsyncVendingMachine async(VendingMachine vendingMachine, Executor executor) {
+        return SerialAsyncVendingMachine.newOne(vendingMachine, executor);
+    }
+
+    /**
+     * Returns a runtime that serves the given vending machines over the given number of shards, each
+     * one with a thread that owns its vending machines, so that they need no synchronization
+     *
+     * @param vendingMachines that must not be used but through the runtime from now on, whose index is their id
+     * @param shards          how many threads serve the vending machines
+     * @return a runtime that routes the operations of a vending machine to the shard that owns it
+     */
+    public static ShardedFleet shardedFleet(List<VendingMachine> vendingMachines, int shards) {
+        return ShardedFleetImpl.of(vendingMachines, shards);
+    }
+
+    /**
+     * @return a runtime that serves the given vending machines over a shard per available processor
+     * @see #shardedFleet(List, int)
+     */
+    public static ShardedFleet shardedFleet(List<VendingMachine> vendingMachines) {
+        return shardedFleet(vendingMachines, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @return the planogram of the given file, whose vending machines may be built by any supplier
+     * @throws IllegalArgumentException if some line is malformed
+     */
+    public static Planogram loadPlanogram(Path file) {
+        return PlanogramImpl.load(file);
+    }
+
     /**
      * Returns a supplier for testing, who will be configured by the given coin calculator
      *
@@ -2,13 +2,13 @@ package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
 
 import net.xfolch.dtech.vendingmachine.domain.model.*;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.function.UnaryOperator;
-import java.util.stream.Stream;
 
 import static java.util.Collections.unmodifiableList;
-import static java.util.stream.Collectors.collectingAndThen;
-import static java.util.stream.Collectors.toSet;
 
 /**
  * Implementation of the supplier api.
@@ -18,21 +18,118 @@ import static java.util.stream.Collectors.toSet;
 final class SupplierImpl implements Supplier {
 
     private final CoinCalculator calculator;
+    private final MachineFactory factory;
+    private final Function<VendingMachine.Builder, VendingMachine.Builder> decorators;
+    private final Runnable shutdown;
+
+    private SupplierImpl(CoinCalculator calculator,
+                         MachineFactory factory,
+                         Function<VendingMachine.Builder, VendingMachine.Builder> decorators) {
+
+        this(calculator, factory, decorators, () -> { });
+    }
+
+    private SupplierImpl(CoinCalculator calculator,
+                         MachineFactory factory,
+                         Function<VendingMachine.Builder, VendingMachine.Builder> decorators,
+                         Runnable shutdown) {
 
-    private SupplierImpl(CoinCalculator calculator) {
         this.calculator = calculator;
+        this.factory = factory;
+        this.decorators = decorators;
+        this.shutdown = shutdown;
     }
 
     static SupplierImpl newOne(CoinCalculator calculator) {
-        return new SupplierImpl(calculator);
+        // decorator pattern using Java 8 libraries
+        return new SupplierImpl(calculator,
+                InMemoryVendingMachine::noCredit,
+                UnaryOperator.<VendingMachine.Builder>identity()
+                        .andThen(ResetableVendingMachineBuilder::newOne));
+    }
+
+    /**
+     * Concurrent vending machines know how to reset themselves, so they are not decorated
+     */
+    static SupplierImpl concurrent(CoinCalculator calculator) {
+        return new SupplierImpl(calculator, ConcurrentVendingMachine::noCredit, UnaryOperator.identity());
+    }
+
+    /**
+     * Fleet vending machines know how to reset themselves in place, so they are not decorated
+     */
+    static SupplierImpl fleet(CoinCalculator calculator) {
+        return new SupplierImpl(calculator, new FleetFactory(), UnaryOperator.identity());
+    }
+
+    /**
+     * Both the vending machines and their calculator are decorated so that they record into the given
+     * metrics, unless these are disabled, in which case nothing is decorated at all
+     */
+    static SupplierImpl instrumented(CoinCalculator calculator, MetricsImpl metrics) {
+        if (!metrics.isEnabled()) {
+            return newOne(calculator);
+        }
+
+        return new SupplierImpl(InstrumentedCoinCalculator.newOne(calculator, metrics),
+                InMemoryVendingMachine::noCredit,
+                UnaryOperator.<VendingMachine.Builder>identity()
+                        .andThen(ResetableVendingMachineBuilder::newOne)
+                        .andThen(builder -> InstrumentedVendingMachineBuilder.newOne(builder, metrics)));
+    }
+
+    /**
+     * Journaled vending machines are found again by the name that the caller gives them, regardless
+     * of the order in which they are built
+     */
+    static SupplierImpl journaled(CoinCalculator calculator, Path directory) {
+        return new SupplierImpl(calculator,
+                InMemoryVendingMachine::noCredit,
+                UnaryOperator.<VendingMachine.Builder>identity()
+                        .andThen(ResetableVendingMachineBuilder::newOne)
+                        .andThen(builder -> JournaledVendingMachineBuilder.newOne(builder, directory)));
+    }
+
+    /**
+     * Vending machines are spread round-robin over the given number of shards, each one with its own
+     * command ring and consumer thread, which are stopped when the supplier is shut down
+     */
+    static SupplierImpl pipelined(CoinCalculator calculator, int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("There must be some shard, but were " + shards);
+        }
+
+        CommandRing[] rings = new CommandRing[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            rings[shard] = CommandRing.start();
+        }
+        AtomicInteger built = new AtomicInteger();
+
+        return new SupplierImpl(calculator,
+                InMemoryVendingMachine::noCredit,
+                UnaryOperator.<VendingMachine.Builder>identity()
+                        .andThen(ResetableVendingMachineBuilder::newOne)
+                        .andThen(builder -> PipelinedVendingMachineBuilder.newOne(builder, rings, built)),
+                () -> Arrays.stream(rings).forEach(CommandRing::stop));
+    }
+
+    /**
+     * Vending machines are numbered after the order in which they are built, which is how the
+     * analytics tell them apart
+     */
+    static SupplierImpl analyzed(CoinCalculator calculator, SalesAnalyticsImpl analytics) {
+        AtomicInteger built = new AtomicInteger();
+
+        return new SupplierImpl(calculator,
+                InMemoryVendingMachine::noCredit,
+                UnaryOperator.<VendingMachine.Builder>identity()
+                        .andThen(ResetableVendingMachineBuilder::newOne)
+                        .andThen(builder -> AnalyzedVendingMachineBuilder.newOne(builder, analytics, built)));
     }
 
     @Override
     public VendingMachine.Builder newVendingMachine() {
-        // decorator pattern using Java 8 libraries
-        return UnaryOperator.<VendingMachine.Builder>identity()
-                .andThen(ResetableVendingMachineBuilder::newOne)
-                .apply(InMemoryVendingMachineBuilder.empty(calculator));
+        return decorators.apply(InMemoryVendingMachineBuilder.empty(factory, calculator));
     }
 
     @Override
@@ -42,6 +139,79 @@ final class SupplierImpl implements Supplier {
         }
     }
 
+    @Override
+    public void retire(VendingMachine vendingMachine) {
+        if (vendingMachine instanceof Retirable) {
+            ((Retirable) vendingMachine).retire();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown.run();
+    }
+
+    /**
+     * Vending machines are reset in parallel over the common fork-join pool
+     */
+    @Override
+    public void resetAll(Collection<VendingMachine> vendingMachines) {
+        vendingMachines.parallelStream().forEach(this::reset);
+    }
+
+    @Override
+    public void snapshot(List<VendingMachine> vendingMachines, Path file) {
+        FleetSnapshot.write(vendingMachines, file);
+    }
+
+    @Override
+    public void restore(List<VendingMachine> vendingMachines, Path file) {
+        FleetSnapshot.read(vendingMachines, file);
+    }
+
+    @Override
+    public List<RefillManifest> planRefills(List<VendingMachine> vendingMachines) {
+        return RefillPlanner.plan(vendingMachines);
+    }
+
+    @Override
+    public void refill(VendingMachine vendingMachine, RefillManifest refill) {
+        RefillPlanner.refill(vendingMachine, refill);
+    }
+
+    /**
+     * Makes the vending machine that the builder chain is configuring
+     */
+    @FunctionalInterface
+    private interface MachineFactory {
+        VendingMachine newOne(Slots slots, List<Coin> cash, CoinCalculator calculator);
+
+        default List<VendingMachine> newMany(Slots slots, List<Coin> cash, CoinCalculator calculator, int count) {
+            List<VendingMachine> vendingMachines = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                vendingMachines.add(newOne(slots, cash, calculator));
+            }
+
+            return vendingMachines;
+        }
+    }
+
+    /**
+     * Lays out the vending machines built together in a single fleet store
+     */
+    private static final class FleetFactory implements MachineFactory {
+
+        @Override
+        public VendingMachine newOne(Slots slots, List<Coin> cash, CoinCalculator calculator) {
+            return FleetStore.noCredit(slots, cash, calculator);
+        }
+
+        @Override
+        public List<VendingMachine> newMany(Slots slots, List<Coin> cash, CoinCalculator calculator, int count) {
+            return FleetStore.fleet(slots, cash, calculator, count);
+        }
+    }
+
     /**
      * Mutable vending machine builder
      */
@@ -75,21 +245,209 @@ final class SupplierImpl implements Supplier {
     }
 
     /**
-     * Immutable vending machine builder
+     * Mutable vending machine builder that instruments what it builds
+     */
+    private static final class InstrumentedVendingMachineBuilder implements VendingMachine.Builder {
+        private VendingMachine.Builder builder;
+        private final MetricsImpl metrics;
+
+        private InstrumentedVendingMachineBuilder(VendingMachine.Builder builder, MetricsImpl metrics) {
+            this.builder = builder;
+            this.metrics = metrics;
+        }
+
+        static InstrumentedVendingMachineBuilder newOne(VendingMachine.Builder builder, MetricsImpl metrics) {
+            return new InstrumentedVendingMachineBuilder(builder, metrics);
+        }
+
+        @Override
+        public VendingMachine.Builder addProduct(Product product, Integer numUnits) {
+            builder = builder.addProduct(product, numUnits);
+            return this;
+        }
+
+        @Override
+        public VendingMachine.Builder setCash(List<Coin> cash) {
+            builder = builder.setCash(cash);
+            return this;
+        }
+
+        @Override
+        public VendingMachine build() {
+            return InstrumentedVendingMachine.newOne(builder.build(), metrics);
+        }
+    }
+
+    /**
+     * Mutable vending machine builder that journals what it builds, under the name it is given
+     */
+    private static final class JournaledVendingMachineBuilder implements VendingMachine.Builder {
+        private VendingMachine.Builder builder;
+        private final Path directory;
+        private String name;
+
+        private JournaledVendingMachineBuilder(VendingMachine.Builder builder, Path directory) {
+            this.builder = builder;
+            this.directory = directory;
+        }
+
+        static JournaledVendingMachineBuilder newOne(VendingMachine.Builder builder, Path directory) {
+            return new JournaledVendingMachineBuilder(builder, directory);
+        }
+
+        @Override
+        public VendingMachine.Builder addProduct(Product product, Integer numUnits) {
+            builder = builder.addProduct(product, numUnits);
+            return this;
+        }
+
+        @Override
+        public VendingMachine.Builder setCash(List<Coin> cash) {
+            builder = builder.setCash(cash);
+            return this;
+        }
+
+        @Override
+        public VendingMachine.Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        @Override
+        public VendingMachine build() {
+            if (name == null) {
+                throw new IllegalStateException("Journaled vending machines must be named");
+            }
+
+            return JournaledVendingMachine.recover(builder.build(), directory, name);
+        }
+
+        /**
+         * Vending machines built alike would share the same name, so they must be built by name
+         */
+        @Override
+        public List<VendingMachine> build(int count) {
+            throw new IllegalStateException("Journaled vending machines must be built by name");
+        }
+
+        @Override
+        public List<VendingMachine> build(List<String> names) {
+            List<VendingMachine> vendingMachines = new ArrayList<>(names.size());
+            for (String name : names) {
+                vendingMachines.add(JournaledVendingMachine.recover(builder.build(), directory, name));
+            }
+
+            return vendingMachines;
+        }
+    }
+
+    /**
+     * Mutable vending machine builder that pipelines what it builds through the next shard
+     */
+    private static final class PipelinedVendingMachineBuilder implements VendingMachine.Builder {
+        private VendingMachine.Builder builder;
+        private final CommandRing[] rings;
+        private final AtomicInteger built;
+
+        private PipelinedVendingMachineBuilder(VendingMachine.Builder builder,
+                                               CommandRing[] rings,
+                                               AtomicInteger built) {
+            this.builder = builder;
+            this.rings = rings;
+            this.built = built;
+        }
+
+        static PipelinedVendingMachineBuilder newOne(VendingMachine.Builder builder,
+                                                     CommandRing[] rings,
+                                                     AtomicInteger built) {
+            return new PipelinedVendingMachineBuilder(builder, rings, built);
+        }
+
+        @Override
+        public VendingMachine.Builder addProduct(Product product, Integer numUnits) {
+            builder = builder.addProduct(product, numUnits);
+            return this;
+        }
+
+        @Override
+        public VendingMachine.Builder setCash(List<Coin> cash) {
+            builder = builder.setCash(cash);
+            return this;
+        }
+
+        @Override
+        public VendingMachine build() {
+            CommandRing ring = rings[Math.floorMod(built.getAndIncrement(), rings.length)];
+            return PipelinedVendingMachine.newOne(builder.build(), ring);
+        }
+    }
+
+    /**
+     * Mutable vending machine builder that has what it builds analyzed
+     */
+    private static final class AnalyzedVendingMachineBuilder implements VendingMachine.Builder {
+        private VendingMachine.Builder builder;
+        private final SalesAnalyticsImpl analytics;
+        private final AtomicInteger built;
+
+        private AnalyzedVendingMachineBuilder(VendingMachine.Builder builder,
+                                              SalesAnalyticsImpl analytics,
+                                              AtomicInteger built) {
+            this.builder = builder;
+            this.analytics = analytics;
+            this.built = built;
+        }
+
+        static AnalyzedVendingMachineBuilder newOne(VendingMachine.Builder builder,
+                                                    SalesAnalyticsImpl analytics,
+                                                    AtomicInteger built) {
+            return new AnalyzedVendingMachineBuilder(builder, analytics, built);
+        }
+
+        @Override
+        public VendingMachine.Builder addProduct(Product product, Integer numUnits) {
+            builder = builder.addProduct(product, numUnits);
+            return this;
+        }
+
+        @Override
+        public VendingMachine.Builder setCash(List<Coin> cash) {
+            builder = builder.setCash(cash);
+            return this;
+        }
+
+        @Override
+        public VendingMachine build() {
+            return AnalyzedVendingMachine.newOne(builder.build(), analytics, built.getAndIncrement());
+        }
+    }
+
+    /**
+     * Immutable vending machine builder.
+     * <p>
+     * Adding a product shares the product lines of the previous builder instead of copying them, and
+     * the slots are figured out only once, the first time that it builds, so that resetting a vending
+     * machine built from it reuses them.
      */
     private static final class InMemoryVendingMachineBuilder implements VendingMachine.Builder {
-        private final Set<ProductLine> products;
+        private final MachineFactory factory;
+        private final ProductLines products;
         private final List<Coin> cash;
         private final CoinCalculator calculator;
+        private Slots slots;
 
-        private InMemoryVendingMachineBuilder(Set<ProductLine> products, List<Coin> cash, CoinCalculator calculator) {
+        private InMemoryVendingMachineBuilder(MachineFactory factory,
+                                              ProductLines products,
+                                              List<Coin> cash,
+                                              CoinCalculator calculator) {
+            this.factory = factory;
             this.products = products;
             this.cash = cash;
             this.calculator = calculator;
         }
 
-        static InMemoryVendingMachineBuilder empty(CoinCalculator calculator) {
-            return new InMemoryVendingMachineBuilder(Collections.emptySet(), Collections.emptyList(), calculator);
+        static InMemoryVendingMachineBuilder empty(MachineFactory factory, CoinCalculator calculator) {
+            return new InMemoryVendingMachineBuilder(factory, ProductLines.EMPTY, Collections.emptyList(), calculator);
         }
 
         @Override
@@ -112,18 +470,67 @@ final class SupplierImpl implements Supplier {
 
         @Override
         public VendingMachine build() {
-            return InMemoryVendingMachine.noCredit(products, cash, calculator);
+            return factory.newOne(slots(), cash, calculator);
+        }
+
+        @Override
+        public List<VendingMachine> build(int count) {
+            return factory.newMany(slots(), cash, calculator, count);
+        }
+
+        /**
+         * Slots are immutable, so racing to figure them out at the same time is harmless
+         */
+        private Slots slots() {
+            Slots slots = this.slots;
+            if (slots == null) {
+                slots = Slots.of(products.toSet());
+                this.slots = slots;
+            }
+
+            return slots;
         }
 
         private VendingMachine.Builder copySettingCash(List<Coin> newCash) {
-            return new InMemoryVendingMachineBuilder(products, unmodifiableList(new ArrayList<>(newCash)), calculator);
+            return new InMemoryVendingMachineBuilder(factory, products, unmodifiableList(new ArrayList<>(newCash)), calculator);
         }
 
         private VendingMachine.Builder copyAddingProduct(Product product, Integer numUnits) {
-            Set<ProductLine> newProducts = Stream.concat(products.stream(), Stream.of(ProductLine.newOne(product, numUnits)))
-                    .collect(collectingAndThen(toSet(), Collections::unmodifiableSet));
+            return new InMemoryVendingMachineBuilder(factory, products.add(ProductLine.newOne(product, numUnits)), cash, calculator);
+        }
+    }
+
+    /**
+     * Persistent list of the product lines added to a builder, where the newest line points to the
+     * previous ones
+     */
+    private static final class ProductLines {
+        static final ProductLines EMPTY = new ProductLines(null, null, 0);
+
+        private final ProductLine line;
+        private final ProductLines previous;
+        private final int size;
+
+        private ProductLines(ProductLine line, ProductLines previous, int size) {
+            this.line = line;
+            this.previous = previous;
+            this.size = size;
+        }
+
+        ProductLines add(ProductLine line) {
+            return new ProductLines(line, this, size + 1);
+        }
+
+        /**
+         * @return the product lines in the order they were added, where the first line of a product wins
+         */
+        Set<ProductLine> toSet() {
+            ProductLine[] lines = new ProductLine[size];
+            for (ProductLines node = this; node.size > 0; node = node.previous) {
+                lines[node.size - 1] = node.line;
+            }
 
-            return new InMemoryVendingMachineBuilder(newProducts, cash, calculator);
+            return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(lines)));
         }
     }
 
@@ -0,0 +1,54 @@
+package net.xfolch.dtech.vendingmachine.domain.model.suppliers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of non-negative numbers, seven bits per byte, so that the small
+ * numbers that describe a vending machine (slots, units, coins) take a single byte
+ */
+final class VarInts {
+
+    /**
+     * Number of bytes that a long takes at most
+     */
+    static final int MAX_SIZE = 10;
+
+    private VarInts() {
+    }
+
+    static void put(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static long get(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    static int getInt(ByteBuffer buffer) {
+        return (int) get(buffer);
+    }
+
+    /**
+     * Zig-zag encodes the given int, so that small negative numbers take few bytes as well
+     */
+    static void putSigned(ByteBuffer buffer, int value) {
+        put(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    static int getSigned(ByteBuffer buffer) {
+        int value = getInt(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,97 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncVendingMachineTest extends DomainTest {
+
+    private final ExecutorService carriers = Executors.newFixedThreadPool(4);
+
+    @After
+    public void shutdown() {
+        carriers.shutdownNow();
+    }
+
+    @Test
+    public void operations_are_made_in_the_order_they_were_requested() {
+
+        AsyncVendingMachine vendingMachine = SupplierFactory.async(niceSupplier.newVendingMachine()
+                .addProduct(Coke, 1)
+                .build(), carriers);
+
+        vendingMachine.insertCoin(Coin.ONE_EURO);
+        vendingMachine.insertCoin(Coin.FIFTY_CENTS);
+        CompletableFuture<Try<Purchase>> purchase = vendingMachine.selectProduct(Coke.getId());
+        vendingMachine.insertCoin(Coin.TWO_EUROS);
+        CompletableFuture<Try<Purchase>> soldOut = vendingMachine.selectProduct(Coke.getId());
+        CompletableFuture<Try<List<Coin>>> refund = vendingMachine.cancel();
+
+        assertThat(purchase.join().getOrThrowRuntimeException().getProduct()).isEqualTo(Coke);
+        assertThat(soldOut.join().isFailure()).isTrue();
+        assertThat(refund.join().getOrThrowRuntimeException()).containsExactly(Coin.TWO_EUROS);
+    }
+
+    @Test
+    public void thousands_of_machines_make_progress_on_a_few_threads() {
+
+        List<AsyncVendingMachine> vendingMachines = new ArrayList<>();
+        for (VendingMachine vendingMachine : niceSupplier.newVendingMachine().addProduct(Water, 100).build(5_000)) {
+            vendingMachines.add(SupplierFactory.async(vendingMachine, carriers));
+        }
+
+        List<CompletableFuture<Try<Purchase>>> purchases = new ArrayList<>();
+        for (int round = 0; round < 10; round++) {
+            for (AsyncVendingMachine vendingMachine : vendingMachines) {
+                vendingMachine.insertCoin(Coin.ONE_EURO);
+                purchases.add(vendingMachine.selectProduct(Water.getId()));
+            }
+        }
+
+        CompletableFuture.allOf(purchases.toArray(new CompletableFuture<?>[0])).join();
+
+        assertThat(purchases).allMatch(purchase -> purchase.join().isSuccess());
+        assertThat(vendingMachines).allMatch(vendingMachine -> vendingMachine.cancel().join()
+                .getOrThrowRuntimeException().isEmpty());
+    }
+
+    @Test
+    public void unexpected_errors_end_up_as_failures() {
+
+        AsyncVendingMachine vendingMachine = SupplierFactory.async(niceSupplier.newVendingMachine().build(), carriers);
+
+        assertThat(vendingMachine.selectProduct(null).join().isFailure()).isTrue();
+        assertThat(vendingMachine.cancel().join().isSuccess()).isTrue();
+    }
+
+    @Test
+    public void a_rejected_operation_fails_without_holding_up_the_next_ones() {
+
+        AtomicBoolean reject = new AtomicBoolean(true);
+        Executor rejectingOnce = task -> {
+            if (reject.getAndSet(false)) {
+                throw new RejectedExecutionException();
+            }
+            carriers.execute(task);
+        };
+        AsyncVendingMachine vendingMachine = SupplierFactory.async(niceSupplier.newVendingMachine()
+                .addProduct(Coke, 1)
+                .build(), rejectingOnce);
+
+        assertThat(vendingMachine.insertCoin(Coin.TWO_EUROS).join().isFailure()).isTrue();
+        assertThat(vendingMachine.insertCoin(Coin.TWO_EUROS).join().isSuccess()).isTrue();
+        assertThat(vendingMachine.cancel().join().getOrThrowRuntimeException()).containsExactly(Coin.TWO_EUROS);
+    }
+
+}
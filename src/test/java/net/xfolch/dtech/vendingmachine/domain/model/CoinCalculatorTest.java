@@ -0,0 +1,120 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.calculators.CoinCalculatorFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.nCopies;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CoinCalculatorTest {
+
+    private final CoinCalculator denomination = CoinCalculatorFactory.denominationCoinCalculator();
+
+    private final CoinCalculator highest = CoinCalculatorFactory.highestValuedCoinCalculator();
+
+    private final CoinCalculator exact = CoinCalculatorFactory.exactChangeCoinCalculator();
+
+    private final CoinCalculator lookupTable = CoinCalculatorFactory.lookupTableCoinCalculator();
+
+    @Test
+    public void denomination_calculator_gives_same_change_as_highest_valued_one() {
+
+        List<Coin> cash = Arrays.asList(Coin.TEN_CENTS, Coin.FIFTY_CENTS, Coin.TWENTY_CENTS,
+                Coin.TEN_CENTS, Coin.FIVE_CENTS, Coin.TWENTY_CENTS, Coin.ONE_EURO);
+
+        for (long remaining = 0; remaining <= 250; remaining += 5) {
+            assertThat(denomination.change(cash, remaining))
+                    .as("change of %s cents", remaining)
+                    .isEqualTo(highest.change(cash, remaining));
+        }
+    }
+
+    @Test
+    public void denomination_calculator_handles_big_cash_amounts() {
+
+        List<Coin> cash = new ArrayList<>(nCopies(100_000, Coin.FIVE_CENTS));
+        cash.addAll(nCopies(100_000, Coin.TWENTY_CENTS));
+
+        List<Coin> change = denomination.change(cash, 95);
+
+        assertThat(change).containsExactly(Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS,
+                Coin.TWENTY_CENTS, Coin.FIVE_CENTS, Coin.FIVE_CENTS, Coin.FIVE_CENTS);
+        assertThat(denomination.sum(cash)).isEqualTo(2_500_000L);
+    }
+
+    @Test
+    public void exact_change_calculator_finds_change_where_greedy_one_falls_short() {
+
+        List<Coin> cash = Arrays.asList(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS);
+
+        assertThat(highest.change(cash, 60)).containsExactly(Coin.FIFTY_CENTS);
+        assertThat(exact.change(cash, 60))
+                .containsExactly(Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS);
+    }
+
+    @Test
+    public void exact_change_calculator_prefers_the_fewest_coins() {
+
+        List<Coin> cash = new ArrayList<>(nCopies(20, Coin.FIVE_CENTS));
+        cash.addAll(nCopies(5, Coin.TWENTY_CENTS));
+        cash.add(Coin.FIFTY_CENTS);
+
+        assertThat(exact.change(cash, 75))
+                .containsExactly(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.FIVE_CENTS);
+        assertThat(exact.change(cash, 245))
+                .hasSize(25)
+                .containsOnly(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.FIVE_CENTS);
+    }
+
+    @Test
+    public void exact_change_calculator_reports_when_change_cannot_be_made() {
+
+        List<Coin> cash = Arrays.asList(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS);
+
+        assertThat(exact.changeIfPossible(cash, 60)).isEmpty();
+        assertThat(exact.changeIfPossible(cash, 3)).isEmpty();
+        assertThat(exact.changeIfPossible(cash, 70)).hasValue(
+                Arrays.asList(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS));
+    }
+
+    @Test
+    public void lookup_table_calculator_gives_same_change_as_exact_one() {
+
+        List<List<Coin>> hoppers = Arrays.asList(
+                Arrays.asList(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS),
+                Arrays.asList(Coin.TWO_EUROS, Coin.ONE_EURO, Coin.FIFTY_CENTS, Coin.TEN_CENTS, Coin.FIVE_CENTS),
+                new ArrayList<>(nCopies(300, Coin.FIVE_CENTS)),
+                new ArrayList<>(nCopies(10, Coin.TWO_EUROS)));
+
+        for (List<Coin> cash : hoppers) {
+            for (long remaining = 0; remaining <= 1_200; remaining += 5) {
+                assertThat(lookupTable.changeIfPossible(cash, remaining))
+                        .as("change of %s cents from %s", remaining, cash)
+                        .isEqualTo(exact.changeIfPossible(cash, remaining));
+            }
+        }
+        assertThat(lookupTable.changeIfPossible(hoppers.get(1), 3)).isEmpty();
+    }
+
+    @Test
+    public void calculators_give_same_change_from_counts_as_from_lists() {
+
+        List<Coin> cash = Arrays.asList(Coin.TEN_CENTS, Coin.FIFTY_CENTS, Coin.TWENTY_CENTS,
+                Coin.TWENTY_CENTS, Coin.FIVE_CENTS, Coin.TWENTY_CENTS, Coin.ONE_EURO);
+        long[] counts = new long[Coin.values().length];
+        cash.forEach(coin -> counts[coin.ordinal()]++);
+
+        for (CoinCalculator calculator : Arrays.asList(highest, denomination, exact, lookupTable)) {
+            for (long remaining = 0; remaining <= 250; remaining += 5) {
+                assertThat(calculator.changeIfPossible(CoinCounts.of(counts), remaining))
+                        .as("change of %s cents", remaining)
+                        .isEqualTo(calculator.changeIfPossible(cash, remaining));
+            }
+        }
+    }
+
+}
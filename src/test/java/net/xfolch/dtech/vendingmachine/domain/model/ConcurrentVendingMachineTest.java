@@ -0,0 +1,210 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughChange;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.nCopies;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrentVendingMachineTest extends DomainTest {
+
+    private final Supplier concurrentSupplier = SupplierFactory.concurrentSupplier();
+
+    @Test
+    public void every_door_keeps_its_own_credit() throws Exception {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        vendingMachine.insertCoin(Coin.FIFTY_CENTS);
+
+        ExecutorService otherDoor = Executors.newSingleThreadExecutor();
+        try {
+            Session session = vendingMachine.openSession();
+            List<Coin> otherRefund = otherDoor.submit(() -> session.insertCoin(Coin.TWO_EUROS).cancel()).get();
+
+            assertThat(otherRefund).containsExactly(Coin.TWO_EUROS);
+        } finally {
+            otherDoor.shutdown();
+        }
+
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.FIFTY_CENTS);
+    }
+
+    @Test
+    public void credit_is_not_given_back_as_change_until_it_pays_for_a_product() {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(singletonList(Coin.TEN_CENTS))
+                .build();
+
+        Try<Purchase> purchase = vendingMachine
+                .insertCoin(Coin.FIFTY_CENTS)
+                .insertCoin(Coin.FIFTY_CENTS)
+                .selectProduct(Water.getId());
+
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+
+        Try<Purchase> noChange = vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(noChange.isSuccess()).isFalse();
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.ONE_EURO);
+    }
+
+    @Test
+    public void concurrent_purchases_never_give_away_more_coins_than_the_cash_holds() throws Exception {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Water, 1_000)
+                .setCash(new ArrayList<>(nCopies(500, Coin.TEN_CENTS)))
+                .build();
+
+        AtomicInteger purchases = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        ExecutorService doors = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int door = 0; door < 8; door++) {
+            Session session = vendingMachine.openSession();
+            futures.add(doors.submit(() -> {
+                start.await();
+                for (int i = 0; i < 100; i++) {
+                    Try<Purchase> purchase = session.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+
+                    if (purchase.isSuccess()) {
+                        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+                        purchases.incrementAndGet();
+                    } else {
+                        assertThatThrownBy(purchase::getOrThrowException).isInstanceOf(NotEnoughChange.class);
+                        assertThat(session.cancel()).containsExactly(Coin.ONE_EURO);
+                        rejections.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        doors.shutdown();
+
+        assertThat(purchases.get()).isEqualTo(500);
+        assertThat(rejections.get()).isEqualTo(300);
+
+        concurrentSupplier.reset(vendingMachine);
+
+        Try<Purchase> afterReset = vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(afterReset.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+    }
+
+    @Test
+    public void refills_are_not_lost_to_the_purchases_made_meanwhile() throws Exception {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Water, 1_000)
+                .build();
+
+        ExecutorService doors = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int door = 0; door < 4; door++) {
+            Session session = vendingMachine.openSession();
+            futures.add(doors.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    assertThat(session
+                            .insertCoin(Coin.FIFTY_CENTS)
+                            .insertCoin(Coin.TWENTY_CENTS)
+                            .insertCoin(Coin.TWENTY_CENTS)
+                            .selectProduct(Water.getId())
+                            .isSuccess()).isTrue();
+                }
+                return null;
+            }));
+        }
+
+        RefillManifest oneUnit = RefillManifest.builder(0).addUnits(Water.getId(), 1).build();
+        for (int i = 0; i < 100; i++) {
+            concurrentSupplier.refill(vendingMachine, oneUnit);
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        doors.shutdown();
+
+        RefillManifest missing = concurrentSupplier.planRefills(singletonList(vendingMachine)).get(0);
+
+        assertThat(missing.getUnits()).isEqualTo(singletonMap(Water.getId(), 300));
+    }
+
+    @Test
+    public void thousands_of_sessions_share_the_same_vending_machine() throws Exception {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Coke, 2_000)
+                .build();
+
+        ExecutorService frontEnds = Executors.newFixedThreadPool(8);
+        List<Future<Try<Purchase>>> purchases = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            Session session = vendingMachine.openSession();
+            purchases.add(frontEnds.submit(() -> session
+                    .insertCoin(Coin.ONE_EURO)
+                    .insertCoin(Coin.FIFTY_CENTS)
+                    .selectProduct(Coke.getId())));
+        }
+
+        int sold = 0;
+        for (Future<Try<Purchase>> purchase : purchases) {
+            if (purchase.get(30, TimeUnit.SECONDS).isSuccess()) {
+                sold++;
+            }
+        }
+        frontEnds.shutdown();
+
+        assertThat(sold).isEqualTo(2_000);
+    }
+
+    @Test
+    public void orders_take_all_their_units_or_none() {
+
+        VendingMachine vendingMachine = concurrentSupplier.newVendingMachine()
+                .addProduct(Water, 3)
+                .build();
+
+        List<Try<Purchase>> rejected = vendingMachine.purchase(Order.builder()
+                .addCoin(Coin.TWO_EUROS)
+                .addProduct(Water.getId(), 2)
+                .build());
+
+        assertThat(rejected).allMatch(Try::isFailure);
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.TWO_EUROS);
+
+        List<Try<Purchase>> purchases = vendingMachine.purchase(Order.builder()
+                .addCoins(Arrays.asList(Coin.TWO_EUROS, Coin.ONE_EURO, Coin.TWENTY_CENTS, Coin.FIFTY_CENTS))
+                .addProduct(Water.getId(), 3)
+                .build());
+
+        assertThat(purchases).allMatch(Try::isSuccess);
+        assertThat(purchases.get(2).getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.ONE_EURO);
+    }
+
+}
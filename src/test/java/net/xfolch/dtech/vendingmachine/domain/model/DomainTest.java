@@ -30,6 +30,18 @@ abstract class DomainTest {
 
     final Supplier niceSupplier = SupplierFactory.niceSupplier();
 
+    final Supplier exactChangeSupplier = SupplierFactory.exactChangeSupplier();
+
     final Supplier hatefulSupplier = SupplierFactory.forTesting(CoinCalculatorFactory.lowestValuedCoinCalculator());
 
+    static Exception failureOf(Try<?> failure) {
+        try {
+            failure.getOrThrowException();
+        } catch (Exception e) {
+            return e;
+        }
+
+        throw new AssertionError("Expected a failure but was " + failure);
+    }
+
 }
@@ -0,0 +1,76 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FleetVendingMachineTest extends DomainTest {
+
+    private final Supplier fleetSupplier = SupplierFactory.fleetSupplier();
+
+    @Test
+    public void machines_built_in_bulk_keep_their_own_state() {
+
+        List<VendingMachine> fleet = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .addProduct(Coke, 2)
+                .setCash(Arrays.asList(Coin.TEN_CENTS, Coin.FIFTY_CENTS))
+                .build(100_000);
+
+        assertThat(fleet).hasSize(100_000);
+
+        VendingMachine first = fleet.get(0);
+        VendingMachine last = fleet.get(fleet.size() - 1);
+
+        Try<Purchase> purchase = first.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+
+        Try<Purchase> soldOut = first.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        assertThat(failureOf(soldOut)).isInstanceOf(ProductNotAvailable.class);
+        assertThat(first.cancel()).containsExactly(Coin.ONE_EURO);
+
+        last.insertCoin(Coin.FIFTY_CENTS);
+        Try<Purchase> other = last.insertCoin(Coin.FIFTY_CENTS).selectProduct(Water.getId());
+        assertThat(other.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+    }
+
+    @Test
+    public void reset_restores_only_the_given_machine() {
+
+        List<VendingMachine> fleet = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build(2);
+
+        fleet.forEach(vendingMachine -> vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()));
+
+        fleetSupplier.reset(fleet.get(0));
+
+        assertThat(fleet.get(0).insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+        assertThat(failureOf(fleet.get(1).insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void orders_and_sessions_work_over_the_fleet_as_well() {
+
+        VendingMachine vendingMachine = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 2)
+                .setCash(Arrays.asList(Coin.TEN_CENTS, Coin.TEN_CENTS))
+                .build();
+
+        List<Try<Purchase>> purchases = vendingMachine.purchase(Order.builder()
+                .addCoins(Arrays.asList(Coin.ONE_EURO, Coin.ONE_EURO))
+                .addProduct(Water.getId(), 2)
+                .build());
+
+        assertThat(purchases).allMatch(Try::isSuccess);
+        assertThat(vendingMachine.openSession().insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isFailure())
+                .isTrue();
+    }
+
+}
@@ -0,0 +1,230 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JournaledVendingMachineTest extends DomainTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stock_cash_and_credit_are_recovered_after_a_restart() {
+
+        VendingMachine vendingMachine = newVendingMachine();
+
+        Try<Purchase> purchase = vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+
+        vendingMachine.insertCoin(Coin.FIFTY_CENTS);
+
+        VendingMachine recovered = restart(vendingMachine);
+
+        assertThat(recovered.cancel()).containsExactly(Coin.FIFTY_CENTS);
+
+        Try<Purchase> tenCentsAlreadyGiven = recovered
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(tenCentsAlreadyGiven.getOrThrowRuntimeException().getRemaining()).isEmpty();
+
+        Try<Purchase> exact = recovered
+                .insertCoin(Coin.ONE_EURO)
+                .insertCoin(Coin.FIFTY_CENTS)
+                .selectProduct(Coke.getId());
+
+        assertThat(exact.getOrThrowRuntimeException().getRemaining()).isEmpty();
+
+        Try<Purchase> soldOut = restart(recovered)
+                .insertCoin(Coin.TWO_EUROS)
+                .selectProduct(Coke.getId());
+
+        assertThat(failureOf(soldOut)).isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void state_is_recovered_from_snapshots_as_well() {
+
+        VendingMachine vendingMachine = newVendingMachine();
+
+        vendingMachine.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+        for (int i = 0; i < 12_000; i++) {
+            vendingMachine.insertCoin(Coin.FIVE_CENTS).cancel();
+        }
+        vendingMachine.insertCoin(Coin.FIFTY_CENTS);
+
+        VendingMachine recovered = restart(vendingMachine);
+
+        assertThat(recovered.cancel()).containsExactly(Coin.FIFTY_CENTS);
+        assertThat(failureOf(recovered.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+        assertThat(folder.getRoot().list()).hasSize(2);
+    }
+
+    @Test
+    public void sales_of_sessions_and_resets_are_recovered() {
+
+        VendingMachine vendingMachine = newVendingMachine();
+
+        vendingMachine.openSession()
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        VendingMachine recovered = restart(vendingMachine);
+
+        recovered
+                .insertCoin(Coin.FIFTY_CENTS)
+                .insertCoin(Coin.TWENTY_CENTS)
+                .insertCoin(Coin.TWENTY_CENTS)
+                .selectProduct(Water.getId());
+
+        VendingMachine soldOut = restart(recovered);
+
+        assertThat(failureOf(soldOut.insertCoin(Coin.TWO_EUROS).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+
+        SupplierFactory.journaledSupplier(folder.getRoot().toPath()).reset(soldOut);
+
+        Try<Purchase> restocked = restart(soldOut)
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(restocked.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
+    }
+
+    @Test
+    public void a_restored_snapshot_is_recovered_after_a_restart() {
+
+        Supplier supplier = SupplierFactory.journaledSupplier(folder.getRoot().toPath());
+        Path file = folder.getRoot().toPath().resolve("fleet.snapshot");
+        VendingMachine vendingMachine = newVendingMachine();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        supplier.snapshot(singletonList(vendingMachine), file);
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        supplier.restore(singletonList(vendingMachine), file);
+
+        VendingMachine recovered = restart(vendingMachine);
+
+        assertThat(recovered.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+        assertThat(failureOf(recovered.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void vending_machines_are_recovered_by_name_whatever_the_order_they_are_built_in() {
+
+        Supplier supplier = SupplierFactory.journaledSupplier(folder.getRoot().toPath());
+        VendingMachine lobby = newVendingMachine("lobby");
+        VendingMachine gym = newVendingMachine("gym");
+
+        gym.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+        supplier.retire(lobby);
+        supplier.retire(gym);
+
+        VendingMachine recoveredGym = newVendingMachine("gym");
+        VendingMachine recoveredLobby = newVendingMachine("lobby");
+
+        assertThat(failureOf(recoveredGym.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+        assertThat(recoveredLobby.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId()).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void products_removed_between_runs_are_left_out_of_the_recovery() {
+
+        Supplier supplier = SupplierFactory.journaledSupplier(folder.getRoot().toPath());
+        VendingMachine vendingMachine = newVendingMachine();
+
+        vendingMachine.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+        supplier.refill(vendingMachine, RefillManifest.builder(0).addUnits(Coke.getId(), 1).build());
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        supplier.retire(vendingMachine);
+
+        VendingMachine withoutCoke = supplier.newVendingMachine()
+                .addProduct(Water, 2)
+                .setName("lobby")
+                .build();
+
+        assertThat(withoutCoke.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+        assertThat(failureOf(withoutCoke.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void products_without_an_id_are_not_journaled() {
+
+        Supplier supplier = SupplierFactory.journaledSupplier(folder.getRoot().toPath());
+        Product unnamed = Product.builder().setName("Unnamed").setPriceInCents(100).build();
+        VendingMachine vendingMachine = supplier.newVendingMachine()
+                .addProduct(unnamed, 1)
+                .addProduct(Water, 1)
+                .setName("lobby")
+                .build();
+
+        supplier.refill(vendingMachine, RefillManifest.builder(0).addUnits(Water.getId(), 1).build());
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        supplier.retire(vendingMachine);
+
+        VendingMachine recovered = supplier.newVendingMachine()
+                .addProduct(unnamed, 1)
+                .addProduct(Water, 1)
+                .setName("lobby")
+                .build();
+
+        assertThat(recovered.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+        assertThat(failureOf(recovered.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void unnamed_vending_machines_cannot_be_journaled() {
+
+        VendingMachine.Builder builder = SupplierFactory.journaledSupplier(folder.getRoot().toPath())
+                .newVendingMachine()
+                .addProduct(Water, 2);
+
+        assertThatThrownBy(builder::build).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> builder.setName("../lobby").build()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Every call plays a restart, as a new supplier builds the same vending machine on the same directory
+     */
+    private VendingMachine newVendingMachine() {
+        return newVendingMachine("lobby");
+    }
+
+    private VendingMachine newVendingMachine(String name) {
+        return SupplierFactory.journaledSupplier(folder.getRoot().toPath())
+                .newVendingMachine()
+                .addProduct(Water, 2)
+                .addProduct(Coke, 1)
+                .setCash(Arrays.asList(Coin.TEN_CENTS, Coin.FIFTY_CENTS))
+                .setName(name)
+                .build();
+    }
+
+    /**
+     * Retires the given vending machine and builds it again, as a restart would
+     */
+    private VendingMachine restart(VendingMachine vendingMachine) {
+        SupplierFactory.journaledSupplier(folder.getRoot().toPath()).retire(vendingMachine);
+
+        return newVendingMachine();
+    }
+
+}
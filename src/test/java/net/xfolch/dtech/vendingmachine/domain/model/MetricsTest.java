@@ -0,0 +1,64 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics.Operation;
+import net.xfolch.dtech.vendingmachine.domain.model.Metrics.Outcome;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsTest extends DomainTest {
+
+    @Test
+    public void record_the_latency_and_outcome_of_every_operation() {
+
+        Metrics metrics = SupplierFactory.newMetrics();
+
+        VendingMachine vendingMachine = SupplierFactory.instrumentedSupplier(metrics).newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(singletonList(Coin.FIVE_CENTS))
+                .build();
+
+        vendingMachine.selectProduct(Coke.getId());
+        vendingMachine.selectProduct(Water.getId());
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        vendingMachine.openSession().insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        vendingMachine.cancel();
+
+        Metrics.Snapshot snapshot = metrics.snapshot();
+
+        assertThat(snapshot.count(Operation.INSERT_COIN)).isEqualTo(1);
+        assertThat(snapshot.count(Operation.SELECT_PRODUCT)).isEqualTo(4);
+        assertThat(snapshot.count(Operation.CANCEL)).isEqualTo(1);
+        assertThat(snapshot.count(Operation.CHANGE)).isEqualTo(1);
+        assertThat(snapshot.count(Outcome.PRODUCT_NOT_EXISTS)).isEqualTo(1);
+        assertThat(snapshot.count(Outcome.NOT_ENOUGH_CREDIT)).isEqualTo(1);
+        assertThat(snapshot.count(Outcome.SOLD)).isEqualTo(1);
+        assertThat(snapshot.count(Outcome.PRODUCT_NOT_AVAILABLE)).isEqualTo(1);
+        assertThat(snapshot.shortChanges()).isEqualTo(1);
+        assertThat(snapshot.latency(Operation.SELECT_PRODUCT, 50))
+                .isGreaterThan(0)
+                .isLessThanOrEqualTo(snapshot.latency(Operation.SELECT_PRODUCT, 100));
+        assertThat(snapshot.latency(Operation.PURCHASE, 99)).isZero();
+    }
+
+    @Test
+    public void disabled_metrics_record_nothing() {
+
+        Metrics metrics = SupplierFactory.disabledMetrics();
+
+        SupplierFactory.instrumentedSupplier(metrics).newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(Arrays.asList(Coin.TEN_CENTS, Coin.FIVE_CENTS))
+                .build()
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(metrics.snapshot().count(Operation.SELECT_PRODUCT)).isZero();
+        assertThat(metrics.snapshot().count(Outcome.SOLD)).isZero();
+    }
+
+}
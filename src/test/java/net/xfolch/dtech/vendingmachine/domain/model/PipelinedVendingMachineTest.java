@@ -0,0 +1,109 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PipelinedVendingMachineTest extends DomainTest {
+
+    private final Supplier pipelinedSupplier = SupplierFactory.pipelinedSupplier(2);
+
+    @After
+    public void shutdown() {
+        pipelinedSupplier.shutdown();
+    }
+
+    @Test
+    public void sells_as_a_plain_vending_machine() {
+
+        VendingMachine vendingMachine = pipelinedSupplier.newVendingMachine()
+                .addProduct(Coke, 1)
+                .setCash(singletonList(Coin.FIFTY_CENTS))
+                .build();
+
+        Try<Purchase> purchase = vendingMachine.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.FIFTY_CENTS);
+        assertThat(vendingMachine.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId()).isFailure()).isTrue();
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.TWO_EUROS);
+
+        pipelinedSupplier.reset(vendingMachine);
+
+        assertThat(vendingMachine.openSession().insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId()).isSuccess())
+                .isTrue();
+    }
+
+    @Test
+    public void commands_from_many_threads_are_applied_one_after_another() throws Exception {
+
+        int threads = 8;
+        int units = 1_000;
+
+        VendingMachine vendingMachine = pipelinedSupplier.newVendingMachine()
+                .addProduct(Water, threads * units)
+                .build();
+
+        ExecutorService doors = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> sold = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                sold.add(doors.submit(() -> {
+                    int count = 0;
+                    Session session = vendingMachine.openSession();
+                    for (int i = 0; i < units + 10; i++) {
+                        if (session.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()) {
+                            count++;
+                        }
+                        session.cancel();
+                    }
+
+                    return count;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> count : sold) {
+                total += count.get();
+            }
+
+            assertThat(total).isEqualTo(threads * units);
+        } finally {
+            doors.shutdown();
+        }
+    }
+
+    @Test
+    public void what_a_command_throws_is_thrown_to_its_caller_alone() {
+
+        VendingMachine vendingMachine = pipelinedSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        assertThatThrownBy(() -> vendingMachine.purchase(null)).isInstanceOf(NullPointerException.class);
+        assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void vending_machines_cannot_be_used_once_their_supplier_is_shut_down() {
+
+        VendingMachine vendingMachine = pipelinedSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO);
+        pipelinedSupplier.shutdown();
+
+        assertThatThrownBy(vendingMachine::cancel).isInstanceOf(IllegalStateException.class);
+    }
+
+}
@@ -0,0 +1,96 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PlanogramTest extends DomainTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void machines_are_built_in_bulk_sharing_their_products() throws Exception {
+
+        Planogram planogram = SupplierFactory.loadPlanogram(write(
+                "# machine,product id,product name,price,units\n" +
+                "stadium-1,1,Coke,1.5,2\n" +
+                "stadium-1,3,Water,0.9,1\n" +
+                "\n" +
+                "stadium-2,1,Coke,1.50,2\n" +
+                "stadium-2,3,Water,0.90,1\n" +
+                "office,3,Water,0.90,5\r\n"));
+
+        assertThat(planogram.machines()).containsExactly("stadium-1", "stadium-2", "office");
+        assertThat(planogram.products()).hasSize(2);
+
+        Map<String, VendingMachine> vendingMachines = planogram.build(niceSupplier, singletonList(Coin.FIFTY_CENTS));
+
+        Purchase first = vendingMachines.get("stadium-1").insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId())
+                .getOrThrowRuntimeException();
+        Purchase second = vendingMachines.get("stadium-2").insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId())
+                .getOrThrowRuntimeException();
+
+        assertThat(first.getProduct()).isSameAs(second.getProduct());
+        assertThat(first.getProduct().getPriceInCents()).isEqualTo(150);
+        assertThat(first.getRemaining()).containsExactly(Coin.FIFTY_CENTS);
+        assertThat(vendingMachines.get("office").insertCoin(Coin.ONE_EURO).selectProduct(Coke.getId()).isFailure())
+                .isTrue();
+    }
+
+    @Test
+    public void malformed_lines_are_reported_with_their_number() throws Exception {
+
+        Path file = write("stadium-1,1,Coke,1.50,2\nstadium-1,3,Water\n");
+
+        assertThatThrownBy(() -> SupplierFactory.loadPlanogram(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    public void a_product_id_cannot_be_reused_for_another_product() throws Exception {
+
+        Path otherName = write("stadium-1,1,Coke,1.50,2\nstadium-2,1,Pepsi,1.50,2\n");
+        Path otherPrice = write("stadium-1,1,Coke,1.50,2\nstadium-2,1,Coke,1.45,2\n");
+
+        assertThatThrownBy(() -> SupplierFactory.loadPlanogram(otherName))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+        assertThatThrownBy(() -> SupplierFactory.loadPlanogram(otherPrice))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+    }
+
+    @Test
+    public void numbers_too_large_are_malformed() throws Exception {
+
+        Path units = write("stadium-1,1,Coke,1.50,99999999999\n");
+        Path price = write("stadium-1,1,Coke,99999999999.50,2\n");
+
+        assertThatThrownBy(() -> SupplierFactory.loadPlanogram(units))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 1");
+        assertThatThrownBy(() -> SupplierFactory.loadPlanogram(price))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 1");
+    }
+
+    private Path write(String content) throws Exception {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+        return file;
+    }
+
+}
@@ -0,0 +1,51 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductCatalogTest extends DomainTest {
+
+    private final ProductCatalog catalog = ProductCatalog.global();
+
+    @Test
+    public void products_with_the_same_value_share_the_same_instance_and_handle() {
+
+        Product coke = Product.builder().setId(Coke.getId()).setName(Coke.getName()).setPrice(Coke.getPrice()).build();
+
+        assertThat(catalog.intern(coke)).isSameAs(catalog.intern(Coke));
+        assertThat(catalog.handleOf(coke)).isEqualTo(catalog.handleOf(Coke));
+        assertThat(catalog.priceInCents(catalog.handleOf(coke))).isEqualTo(150);
+    }
+
+    @Test
+    public void products_with_the_same_id_but_another_price_are_not_mixed_up() {
+
+        Product cheapCoke = Product.builder().setId(Coke.getId()).setName(Coke.getName()).setPriceInCents(100).build();
+
+        assertThat(catalog.handleOf(cheapCoke)).isNotEqualTo(catalog.handleOf(Coke));
+
+        Try<Purchase> purchase = niceSupplier.newVendingMachine()
+                .addProduct(cheapCoke, 1)
+                .build()
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Coke.getId());
+
+        assertThat(purchase.getOrThrowRuntimeException().getProduct().getPriceInCents()).isEqualTo(100);
+    }
+
+    @Test
+    public void machines_of_different_suppliers_share_their_products() {
+
+        Product coke = Product.builder().setId(Coke.getId()).setName(Coke.getName()).setPrice(Coke.getPrice()).build();
+
+        Purchase first = niceSupplier.newVendingMachine().addProduct(Coke, 1).build()
+                .insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId()).getOrThrowRuntimeException();
+        Purchase second = exactChangeSupplier.newVendingMachine().addProduct(coke, 1).build()
+                .insertCoin(Coin.ONE_EURO).insertCoin(Coin.FIFTY_CENTS).selectProduct(Coke.getId())
+                .getOrThrowRuntimeException();
+
+        assertThat(first.getProduct()).isSameAs(second.getProduct());
+    }
+
+}
@@ -0,0 +1,70 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefillTest extends DomainTest {
+
+    private final Supplier fleetSupplier = SupplierFactory.fleetSupplier();
+
+    private final List<Coin> twoOfEach = Arrays.asList(
+            Coin.FIVE_CENTS, Coin.FIVE_CENTS, Coin.TEN_CENTS, Coin.TEN_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS,
+            Coin.FIFTY_CENTS, Coin.FIFTY_CENTS, Coin.ONE_EURO, Coin.ONE_EURO);
+
+    @Test
+    public void machines_close_to_exact_change_only_are_refilled_first() {
+
+        List<VendingMachine> fleet = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 5)
+                .addProduct(Coke, 5)
+                .setCash(twoOfEach)
+                .build(3);
+
+        fleet.get(1).insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+        for (int i = 0; i < 2; i++) {
+            fleet.get(2).insertCoin(Coin.ONE_EURO).insertCoin(Coin.FIFTY_CENTS).selectProduct(Coke.getId());
+        }
+
+        List<RefillManifest> refills = fleetSupplier.planRefills(fleet);
+
+        assertThat(refills).extracting(RefillManifest::getMachine).containsExactly(1, 2);
+
+        assertThat(refills.get(0).isNearExactChangeOnly()).isTrue();
+        assertThat(refills.get(0).getUnits()).isEqualTo(singletonMap(Coke.getId(), 1));
+        assertThat(refills.get(0).getCoins()).isEqualTo(singletonMap(Coin.FIFTY_CENTS, 1L));
+
+        assertThat(refills.get(1).isNearExactChangeOnly()).isFalse();
+        assertThat(refills.get(1).getUnits()).isEqualTo(singletonMap(Coke.getId(), 2));
+        assertThat(refills.get(1).getCoins()).isEmpty();
+
+        refills.forEach(refill -> fleetSupplier.refill(fleet.get(refill.getMachine()), refill));
+
+        assertThat(fleetSupplier.planRefills(fleet)).isEmpty();
+    }
+
+    @Test
+    public void refilling_leaves_alone_the_rest_of_the_state() {
+
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        vendingMachine.insertCoin(Coin.FIFTY_CENTS);
+
+        niceSupplier.refill(vendingMachine, RefillManifest.builder(0).addUnits(Water.getId(), 2).build());
+
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.FIFTY_CENTS);
+        for (int i = 0; i < 2; i++) {
+            assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+        }
+        assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isFailure()).isTrue();
+    }
+
+}
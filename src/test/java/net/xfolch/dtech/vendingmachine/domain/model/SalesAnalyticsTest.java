@@ -0,0 +1,89 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SalesAnalyticsTest extends DomainTest {
+
+    private final SalesAnalytics analytics = SupplierFactory.newSalesAnalytics();
+    private final Supplier analyzedSupplier = SupplierFactory.analyzedSupplier(analytics);
+
+    @After
+    public void shutdown() {
+        analytics.shutdown();
+    }
+
+    @Test
+    public void sales_are_analyzed_per_product_and_machine() {
+
+        VendingMachine first = analyzedSupplier.newVendingMachine()
+                .addProduct(Coke, 10)
+                .addProduct(Pepsi, 10)
+                .build();
+        VendingMachine second = analyzedSupplier.newVendingMachine()
+                .addProduct(Coke, 10)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            first.insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+            first.cancel();
+        }
+        first.insertCoin(Coin.TWO_EUROS).selectProduct(Pepsi.getId());
+        second.openSession().insertCoin(Coin.TWO_EUROS).selectProduct(Coke.getId());
+        second.insertCoin(Coin.TEN_CENTS).selectProduct(Coke.getId());
+
+        analytics.flush();
+
+        long pepsiPrice = Pepsi.getPriceInCents();
+        assertThat(analytics.unitsSold(SalesAnalytics.WINDOW_SECONDS)).isEqualTo(5);
+        assertThat(analytics.revenueInCents(SalesAnalytics.WINDOW_SECONDS)).isEqualTo(4 * 150 + pepsiPrice);
+        assertThat(analytics.productRevenueInCents(Coke.getId())).isEqualTo(4 * 150);
+        assertThat(analytics.machineRevenueInCents(0)).isEqualTo(3 * 150 + pepsiPrice);
+        assertThat(analytics.machineRevenueInCents(1)).isEqualTo(150);
+        assertThat(analytics.estimatedUnitsSold(Coke.getId())).isGreaterThanOrEqualTo(4);
+        assertThat(analytics.topSellers()).containsExactly(Coke.getId(), Pepsi.getId());
+        assertThat(analytics.dropped()).isZero();
+    }
+
+    @Test
+    public void stock_out_is_forecast_at_the_pace_of_the_sales() {
+
+        VendingMachine vendingMachine = analyzedSupplier.newVendingMachine()
+                .addProduct(Water, 3)
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        analytics.flush();
+        assertThat(analytics.stockOutForecast(0, Water.getId())).isEmpty();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        analytics.flush();
+        assertThat(analytics.stockOutForecast(0, Water.getId())).isPresent();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        analytics.flush();
+        assertThat(analytics.stockOutForecast(0, Water.getId())).contains(Duration.ZERO);
+    }
+
+    @Test
+    public void sales_after_shutdown_are_dropped() {
+
+        VendingMachine vendingMachine = analyzedSupplier.newVendingMachine()
+                .addProduct(Water, 3)
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        analytics.shutdown();
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        analytics.flush();
+
+        assertThat(analytics.unitsSold(SalesAnalytics.WINDOW_SECONDS)).isEqualTo(1);
+        assertThat(analytics.dropped()).isEqualTo(1);
+    }
+
+}
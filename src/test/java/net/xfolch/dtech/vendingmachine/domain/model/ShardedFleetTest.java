@@ -0,0 +1,68 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.ShardedFleet.ShardStats;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedFleetTest extends DomainTest {
+
+    private final ShardedFleet fleet = SupplierFactory.shardedFleet(SupplierFactory.fleetSupplier()
+            .newVendingMachine()
+            .addProduct(Water, 1_000)
+            .build(8), 2);
+
+    @After
+    public void shutdown() {
+        fleet.shutdown();
+    }
+
+    @Test
+    public void operations_are_routed_to_the_machine_of_the_given_id() {
+
+        fleet.machine(3).insertCoin(Coin.ONE_EURO);
+        CompletableFuture<Try<Purchase>> purchase = fleet.machine(3).selectProduct(Water.getId());
+        fleet.machine(4).insertCoin(Coin.TWO_EUROS);
+
+        assertThat(purchase.join().isSuccess()).isTrue();
+        assertThat(fleet.machine(3).cancel().join().getOrThrowRuntimeException()).isEmpty();
+        assertThat(fleet.machine(4).cancel().join().getOrThrowRuntimeException()).containsExactly(Coin.TWO_EUROS);
+    }
+
+    @Test
+    public void skewed_load_is_moved_to_the_idle_shard() {
+
+        List<CompletableFuture<Try<Purchase>>> purchases = new ArrayList<>();
+        for (int machineId = 0; machineId < fleet.size(); machineId++) {
+            int operations = fleet.shardOf(machineId) == 0 ? 100 : 1;
+            for (int i = 0; i < operations; i++) {
+                fleet.machine(machineId).insertCoin(Coin.ONE_EURO);
+                purchases.add(fleet.machine(machineId).selectProduct(Water.getId()));
+            }
+        }
+        CompletableFuture.allOf(purchases.toArray(new CompletableFuture<?>[0])).join();
+
+        List<ShardStats> stats = fleet.stats();
+        assertThat(stats.get(0).operations()).isEqualTo(800);
+        assertThat(stats.get(1).operations()).isEqualTo(8);
+        assertThat(stats).allMatch(shard -> shard.machines() == 4);
+
+        assertThat(fleet.rebalance()).isGreaterThan(0);
+
+        List<ShardStats> rebalanced = fleet.stats();
+        assertThat(rebalanced.get(0).machines()).isLessThan(4);
+        assertThat(rebalanced.get(1).machines()).isGreaterThan(4);
+
+        for (int machineId = 0; machineId < fleet.size(); machineId++) {
+            fleet.machine(machineId).insertCoin(Coin.ONE_EURO);
+            assertThat(fleet.machine(machineId).selectProduct(Water.getId()).join().isSuccess()).isTrue();
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package net.xfolch.dtech.vendingmachine.domain.model;
+
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
+import net.xfolch.dtech.vendingmachine.domain.model.suppliers.SupplierFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SnapshotTest extends DomainTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void stock_cash_and_credit_are_restored_in_place() throws Exception {
+
+        Path file = folder.getRoot().toPath().resolve("machine.snapshot");
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .addProduct(Coke, 1)
+                .setCash(Arrays.asList(Coin.TEN_CENTS, Coin.FIFTY_CENTS))
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        vendingMachine.insertCoin(Coin.TWO_EUROS);
+        niceSupplier.snapshot(singletonList(vendingMachine), file);
+
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.TWO_EUROS);
+        niceSupplier.reset(vendingMachine);
+        niceSupplier.restore(singletonList(vendingMachine), file);
+
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.TWO_EUROS);
+        assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isFailure()).isTrue();
+
+        Try<Purchase> coke = vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Coke.getId());
+        assertThat(coke.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.FIFTY_CENTS);
+    }
+
+    @Test
+    public void products_without_an_id_are_left_out_of_the_snapshot() {
+
+        Path file = folder.getRoot().toPath().resolve("machine.snapshot");
+        Product unnamed = Product.builder().setName("Unnamed").setPriceInCents(100).build();
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(unnamed, 1)
+                .addProduct(Water, 1)
+                .build();
+
+        vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        niceSupplier.snapshot(singletonList(vendingMachine), file);
+        niceSupplier.reset(vendingMachine);
+        niceSupplier.restore(singletonList(vendingMachine), file);
+
+        assertThat(failureOf(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())))
+                .isInstanceOf(ProductNotAvailable.class);
+    }
+
+    @Test
+    public void a_whole_fleet_is_restored_machine_by_machine() {
+
+        Path file = folder.getRoot().toPath().resolve("fleet.snapshot");
+        Supplier fleetSupplier = SupplierFactory.fleetSupplier();
+        List<VendingMachine> fleet = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build(100_000);
+
+        for (int i = 0; i < fleet.size(); i += 2) {
+            fleet.get(i).insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        }
+        fleetSupplier.snapshot(fleet, file);
+
+        List<VendingMachine> restored = fleetSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build(100_000);
+        fleetSupplier.restore(restored, file);
+
+        Try<Purchase> soldOut = restored.get(0).insertCoin(Coin.ONE_EURO).selectProduct(Water.getId());
+        assertThat(soldOut.isFailure()).isTrue();
+        assertThatThrownBy(soldOut::getOrThrowException).isInstanceOf(ProductNotAvailable.class);
+        assertThat(restored.get(1).insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+    }
+
+    @Test
+    public void restoring_a_different_number_of_machines_fails() {
+
+        Path file = folder.getRoot().toPath().resolve("fleet.snapshot");
+        List<VendingMachine> fleet = niceSupplier.newVendingMachine().build(2);
+        niceSupplier.snapshot(fleet, file);
+
+        assertThatThrownBy(() -> niceSupplier.restore(fleet.subList(0, 1), file))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
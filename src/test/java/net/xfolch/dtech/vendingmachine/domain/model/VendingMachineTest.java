@@ -1,5 +1,6 @@
 package net.xfolch.dtech.vendingmachine.domain.model;
 
+import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughChange;
 import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.NotEnoughCredit;
 import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotAvailable;
 import net.xfolch.dtech.vendingmachine.domain.model.VendingMachine.ProductNotExists;
@@ -300,4 +301,271 @@ public class VendingMachineTest extends DomainTest {
         assertThat(purchaseAfterReset.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.TEN_CENTS);
     }
 
+    @Test
+    public void reset_all_machines_at_once() {
+
+        List<VendingMachine> vendingMachines = niceSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(singletonList(Coin.TEN_CENTS))
+                .build(1_000);
+
+        vendingMachines.forEach(vendingMachine -> vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId()));
+
+        niceSupplier.resetAll(vendingMachines);
+
+        assertThat(vendingMachines).allMatch(vendingMachine -> vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId())
+                .getOrThrowRuntimeException()
+                .getRemaining()
+                .equals(singletonList(Coin.TEN_CENTS)));
+    }
+
+    @Test
+    public void select_product_and_returns_exact_change() {
+
+        VendingMachine vendingMachine = exactChangeSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(Arrays.asList(Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS))
+                .build();
+
+        Try<Purchase> purchase = vendingMachine
+                .insertCoin(Coin.FIFTY_CENTS)
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(purchase.isSuccess()).isTrue();
+        assertThat(purchase.getOrThrowRuntimeException().getProduct()).isEqualTo(Water);
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining())
+                .containsExactly(Coin.TWENTY_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS);
+    }
+
+    @Test
+    public void reject_the_purchase_when_exact_change_cannot_be_given_back() {
+
+        VendingMachine vendingMachine = exactChangeSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .setCash(singletonList(Coin.FIFTY_CENTS))
+                .build();
+
+        Try<Purchase> purchase = vendingMachine
+                .insertCoin(Coin.ONE_EURO)
+                .selectProduct(Water.getId());
+
+        assertThat(purchase.isSuccess()).isFalse();
+        assertThatThrownBy(purchase::getOrThrowException)
+                .isInstanceOf(NotEnoughChange.class)
+                .hasMessageContaining(Water.getId().toString());
+
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.ONE_EURO);
+
+        Try<Purchase> exactPurchase = vendingMachine
+                .insertCoin(Coin.FIFTY_CENTS)
+                .insertCoin(Coin.TWENTY_CENTS)
+                .insertCoin(Coin.TWENTY_CENTS)
+                .selectProduct(Water.getId());
+
+        assertThat(exactPurchase.isSuccess()).isTrue();
+        assertThat(exactPurchase.getOrThrowRuntimeException().getRemaining()).isEmpty();
+    }
+
+    @Test
+    public void ask_for_the_exact_amount_once_the_cash_runs_short_of_change() {
+
+        Product chocolate = Product.builder()
+                .setId(4)
+                .setName("Chocolate")
+                .setPriceInCents(95)
+                .build();
+
+        VendingMachine vendingMachine = exactChangeSupplier.newVendingMachine()
+                .addProduct(chocolate, 2)
+                .setCash(Arrays.asList(Coin.FIVE_CENTS, Coin.TEN_CENTS, Coin.TWENTY_CENTS, Coin.TWENTY_CENTS,
+                        Coin.FIFTY_CENTS, Coin.ONE_EURO))
+                .build();
+
+        assertThat(vendingMachine.isExactChangeOnly()).isFalse();
+
+        Try<Purchase> purchase = vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(chocolate.getId());
+
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).containsExactly(Coin.FIVE_CENTS);
+        assertThat(vendingMachine.isExactChangeOnly()).isTrue();
+
+        assertThatThrownBy(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(chocolate.getId())::getOrThrowException)
+                .isInstanceOf(NotEnoughChange.class);
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.ONE_EURO);
+
+        exactChangeSupplier.reset(vendingMachine);
+
+        assertThat(vendingMachine.isExactChangeOnly()).isFalse();
+    }
+
+    @Test
+    public void select_products_among_a_large_catalog_with_sparse_ids() {
+
+        VendingMachine.Builder builder = niceSupplier.newVendingMachine();
+        for (int id = 0; id < 500; id++) {
+            builder = builder.addProduct(Product.builder()
+                    .setId(id * 1_000 + 7)
+                    .setName("Product " + id)
+                    .setPriceInCents(50)
+                    .build(), 1);
+        }
+        VendingMachine vendingMachine = builder.build();
+
+        Try<Purchase> purchase = vendingMachine
+                .insertCoin(Coin.FIFTY_CENTS)
+                .selectProduct(321_007);
+
+        assertThat(purchase.isSuccess()).isTrue();
+        assertThat(purchase.getOrThrowRuntimeException().getProduct().getName()).isEqualTo("Product 321");
+
+        assertThatThrownBy(vendingMachine.insertCoin(Coin.FIFTY_CENTS).selectProduct(321_007)::getOrThrowException)
+                .isInstanceOf(ProductNotAvailable.class);
+        assertThatThrownBy(vendingMachine.selectProduct(321_008)::getOrThrowException)
+                .isInstanceOf(ProductNotExists.class);
+    }
+
+    @Test
+    public void adding_a_product_again_keeps_its_first_line_across_resets() {
+
+        VendingMachine.Builder builder = niceSupplier.newVendingMachine();
+        for (int id = 0; id < 500; id++) {
+            builder = builder.addProduct(Product.builder()
+                    .setId(id)
+                    .setName("Product " + id)
+                    .setPriceInCents(50)
+                    .build(), 1);
+        }
+        VendingMachine vendingMachine = builder
+                .addProduct(Water, 1)
+                .addProduct(Water, 5)
+                .build();
+
+        for (int round = 0; round < 2; round++) {
+            assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+            assertThat(vendingMachine.insertCoin(Coin.FIFTY_CENTS).selectProduct(499).isSuccess()).isTrue();
+            assertThatThrownBy(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId())::getOrThrowException)
+                    .isInstanceOf(ProductNotAvailable.class);
+
+            vendingMachine.cancel();
+            niceSupplier.reset(vendingMachine);
+        }
+    }
+
+    @Test
+    public void sessions_keep_their_own_credit_but_share_products_and_cash() {
+
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        Session first = vendingMachine.openSession().insertCoin(Coin.FIFTY_CENTS);
+        Session second = vendingMachine.openSession().insertCoin(Coin.ONE_EURO);
+
+        Try<Purchase> purchase = second.selectProduct(Water.getId());
+
+        // the credit of the first session is not part of the cash
+        assertThat(purchase.isSuccess()).isTrue();
+        assertThat(purchase.getOrThrowRuntimeException().getRemaining()).isEmpty();
+
+        Try<Purchase> soldOut = first.insertCoin(Coin.FIFTY_CENTS).selectProduct(Water.getId());
+
+        assertThatThrownBy(soldOut::getOrThrowException).isInstanceOf(ProductNotAvailable.class);
+        assertThat(first.cancel()).containsExactly(Coin.FIFTY_CENTS, Coin.FIFTY_CENTS);
+        assertThat(second.cancel()).isEmpty();
+        assertThat(vendingMachine.cancel()).isEmpty();
+    }
+
+    @Test
+    public void sessions_keep_their_credit_when_the_machine_is_reset() {
+
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Water, 1)
+                .build();
+
+        Session session = vendingMachine.openSession().insertCoin(Coin.ONE_EURO);
+
+        assertThat(vendingMachine.insertCoin(Coin.ONE_EURO).selectProduct(Water.getId()).isSuccess()).isTrue();
+
+        niceSupplier.reset(vendingMachine);
+
+        Try<Purchase> purchase = session.selectProduct(Water.getId());
+
+        assertThat(purchase.isSuccess()).isTrue();
+        assertThat(purchase.getOrThrowRuntimeException().getProduct()).isEqualTo(Water);
+    }
+
+    @Test
+    public void failures_are_shared_per_product_and_have_no_stack_trace() {
+
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Coke, 0)
+                .build();
+
+        Exception notAvailable = failureOf(vendingMachine.selectProduct(Coke.getId()));
+
+        assertThat(notAvailable).isInstanceOf(ProductNotAvailable.class);
+        assertThat(notAvailable.getStackTrace()).isEmpty();
+        assertThat(failureOf(vendingMachine.selectProduct(Coke.getId()))).isSameAs(notAvailable);
+
+        Exception notExists = failureOf(vendingMachine.selectProduct(Water.getId()));
+
+        assertThat(notExists).isInstanceOf(ProductNotExists.class);
+        assertThat(failureOf(vendingMachine.selectProduct(Water.getId()))).isSameAs(notExists);
+    }
+
+    @Test
+    public void purchase_a_whole_order_giving_back_the_change_once() {
+
+        VendingMachine vendingMachine = niceSupplier.newVendingMachine()
+                .addProduct(Coke, 1)
+                .addProduct(Water, 5)
+                .setCash(Arrays.asList(Coin.ONE_EURO, Coin.FIFTY_CENTS, Coin.TEN_CENTS))
+                .build();
+
+        List<Try<Purchase>> purchases = vendingMachine.purchase(Order.builder()
+                .addCoins(Arrays.asList(Coin.TWO_EUROS, Coin.TWO_EUROS))
+                .addProduct(Coke.getId(), 2)
+                .addProduct(Pepsi.getId())
+                .addProduct(Water.getId())
+                .build());
+
+        assertThat(purchases).hasSize(4);
+        assertThat(purchases.get(0).getOrThrowRuntimeException().getRemaining()).isEmpty();
+        assertThat(failureOf(purchases.get(1))).isInstanceOf(ProductNotAvailable.class);
+        assertThat(failureOf(purchases.get(2))).isInstanceOf(ProductNotExists.class);
+        assertThat(purchases.get(3).getOrThrowRuntimeException().getProduct()).isEqualTo(Water);
+        assertThat(purchases.get(3).getOrThrowRuntimeException().getRemaining())
+                .containsExactly(Coin.ONE_EURO, Coin.FIFTY_CENTS, Coin.TEN_CENTS);
+        assertThat(vendingMachine.cancel()).isEmpty();
+    }
+
+    @Test
+    public void purchase_nothing_of_an_order_whose_change_cannot_be_given_back() {
+
+        VendingMachine vendingMachine = exactChangeSupplier.newVendingMachine()
+                .addProduct(Water, 2)
+                .build();
+
+        List<Try<Purchase>> purchases = vendingMachine.purchase(Order.builder()
+                .addCoin(Coin.TWO_EUROS)
+                .addProduct(Water.getId(), 2)
+                .build());
+
+        assertThat(purchases).hasSize(2);
+        assertThat(failureOf(purchases.get(0))).isInstanceOf(NotEnoughChange.class);
+        assertThat(failureOf(purchases.get(1))).isInstanceOf(NotEnoughChange.class);
+        assertThat(vendingMachine.cancel()).containsExactly(Coin.TWO_EUROS);
+
+        List<Try<Purchase>> exactPurchases = vendingMachine.purchase(Order.builder()
+                .addCoins(Arrays.asList(Coin.ONE_EURO, Coin.FIFTY_CENTS, Coin.TWENTY_CENTS, Coin.TEN_CENTS))
+                .addProduct(Water.getId(), 2)
+                .build());
+
+        assertThat(exactPurchases).allMatch(Try::isSuccess);
+    }
+
 }